@@ -0,0 +1,237 @@
+package com.lannen.kalah;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lannen.kalah.domain.EventLogStats;
+import com.lannen.kalah.domain.GameBoard;
+import com.lannen.kalah.domain.GameStats;
+import com.lannen.kalah.domain.GameSummary;
+import com.lannen.kalah.domain.PurgedGames;
+import com.lannen.kalah.events.GameEventLog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Provides 4 REST routes for administering the games and the game event log, as documented below. The game routes
+ * work from the GameStore indexes, and scan the games weakly consistently, so they do not block the players.
+ *
+ * The routes are only registered if the kalah.admin.enabled property is set to true.
+ */
+@RestController
+@ConditionalOnProperty(name = "kalah.admin.enabled", havingValue = "true")
+public class AdminController {
+  private static final Logger LOG = LoggerFactory.getLogger(AdminController.class);
+  private static final String MEDIA_TYPE_APPLICATION_JSON = "application/json";
+
+  private static final int NORTH_WINS = 0;
+  private static final int SOUTH_WINS = 1;
+  private static final int TIES = 2;
+
+  private final GameStore games;
+  private final GameLifecycle gameLifecycle;
+  private final GameEventLog gameEventLog;
+  private final ObjectMapper objectMapper;
+  private final long minPurgeInactiveSeconds;
+
+  @Autowired
+  public AdminController(GameStore games, GameLifecycle gameLifecycle, GameEventLog gameEventLog,
+      ObjectMapper objectMapper, @Value("${kalah.admin.minPurgeInactiveSeconds:300}") long minPurgeInactiveSeconds) {
+    this.games = games;
+    this.gameLifecycle = gameLifecycle;
+    this.gameEventLog = gameEventLog;
+    this.objectMapper = objectMapper;
+    this.minPurgeInactiveSeconds = minPurgeInactiveSeconds;
+  }
+
+  /**
+   * GET /admin/games/stats
+   *
+   * Gets statistics about the games currently stored. The counts by status come straight from the status index. The
+   * average moves and win counts are computed by a parallel scan of only the games in progress and the games that are
+   * over respectively.
+   *
+   * @return a ResponseEntity containing a GameStats object. HTTP status OK (200).
+   */
+  @RequestMapping(method = RequestMethod.GET, value = "/admin/games/stats", produces = MEDIA_TYPE_APPLICATION_JSON)
+  public ResponseEntity<GameStats> getGameStats() {
+    final Map<GameBoard.GameStatus, Integer> gamesByStatus = new EnumMap<>(GameBoard.GameStatus.class);
+    for (GameBoard.GameStatus gameStatus : GameBoard.GameStatus.values()) {
+      gamesByStatus.put(gameStatus, games.count(gameStatus));
+    }
+
+    final double averageMovesInProgress = games.withStatus(GameBoard.GameStatus.IN_PROGRESS).parallel()
+        .mapToInt(GameBoard::getMoveCount)
+        .average()
+        .orElse(0);
+
+    final long[] results = games.withStatus(GameBoard.GameStatus.GAME_OVER).parallel()
+        .map(GameBoard::getWinner)
+        .collect(() -> new long[3],
+            (counts, winner) -> counts[winner == null ? TIES
+                : winner == GameBoard.PlayerPosition.NORTH ? NORTH_WINS : SOUTH_WINS]++,
+            (counts, other) -> {
+              for (int i = 0; i < counts.length; i++) {
+                counts[i] += other[i];
+              }
+            });
+
+    final GameStats gameStats = new GameStats(gamesByStatus, averageMovesInProgress, results[NORTH_WINS],
+        results[SOUTH_WINS], results[TIES]);
+
+    return new ResponseEntity<>(gameStats, HttpStatus.OK);
+  }
+
+  /**
+   * GET /admin/games
+   *
+   * Lists the games, optionally only those with the given status and/or inactive for at least the given time. The
+   * games are streamed to the response as a JSON array as they are found, rather than being collected first.
+   *
+   * @param status optionally, the status of the games to list
+   * @param inactiveSeconds optionally, only list games with no activity for at least this many seconds
+   *
+   * @return on success, a ResponseEntity streaming a JSON array of GameSummary objects. HTTP status OK (200).
+   *
+   * Failing calls will return a ResponseEntity with a suitable HTTP error code:
+   *
+   * BAD_REQUEST (400): inactiveSeconds is negative.
+   */
+  @RequestMapping(method = RequestMethod.GET, value = "/admin/games", produces = MEDIA_TYPE_APPLICATION_JSON)
+  public ResponseEntity<StreamingResponseBody> listGames(
+      @RequestParam(required = false) GameBoard.GameStatus status,
+      @RequestParam(required = false) Long inactiveSeconds) {
+    if (inactiveSeconds != null && inactiveSeconds < 0) {
+      return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+
+    final StreamingResponseBody body = outputStream -> {
+      try (Stream<GameBoard> gameBoards = findGames(status, inactiveSeconds);
+          JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+        generator.writeStartArray();
+
+        final Iterator<GameBoard> iterator = gameBoards.iterator();
+        while (iterator.hasNext()) {
+          final GameBoard gameBoard = iterator.next();
+
+          final GameSummary gameSummary;
+          synchronized (gameBoard) {
+            gameSummary = new GameSummary(gameBoard, games.getLastActivity(gameBoard.getGameId()));
+          }
+
+          generator.writeObject(gameSummary);
+        }
+
+        generator.writeEndArray();
+      }
+    };
+
+    // The produces condition is not applied to a streamed body, so set the content type explicitly
+    final HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON_UTF8);
+
+    return new ResponseEntity<>(body, headers, HttpStatus.OK);
+  }
+
+  /**
+   * DELETE /admin/games
+   *
+   * Purges the games that have been inactive for at least the given time, optionally only those with the given
+   * status. The games are found using the last activity index, so only the stale games are visited. Games in progress
+   * are only purged if the IN_PROGRESS status is given explicitly.
+   *
+   * @param inactiveSeconds purge games with no activity for at least this many seconds. Must be at least
+   * kalah.admin.minPurgeInactiveSeconds (300 by default).
+   * @param status optionally, the status of the games to purge. If not given, the games not started and the games
+   * that are over are purged.
+   *
+   * @return on success, a ResponseEntity containing a PurgedGames object, giving the number of games purged. HTTP
+   * status OK (200).
+   *
+   * Failing calls will return a ResponseEntity with a suitable HTTP error code:
+   *
+   * BAD_REQUEST (400): inactiveSeconds is missing or less than the minimum.
+   */
+  @RequestMapping(method = RequestMethod.DELETE, value = "/admin/games", produces = MEDIA_TYPE_APPLICATION_JSON)
+  public ResponseEntity<PurgedGames> purgeGames(@RequestParam long inactiveSeconds,
+      @RequestParam(required = false) GameBoard.GameStatus status) {
+    if (inactiveSeconds < 0 || inactiveSeconds < minPurgeInactiveSeconds) {
+      return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+
+    final long cutoff = getCutoff(inactiveSeconds);
+
+    long purgedCount = 0;
+    try (Stream<GameBoard> gameBoards = findGames(status, inactiveSeconds)) {
+      final Iterator<GameBoard> iterator = gameBoards.iterator();
+      while (iterator.hasNext()) {
+        final GameBoard gameBoard = iterator.next();
+
+        // Games in progress are only purged if asked for explicitly
+        if (status == null && gameBoard.getCurrentGameStatus() == GameBoard.GameStatus.IN_PROGRESS) {
+          continue;
+        }
+
+        if (gameLifecycle.purge(gameBoard, cutoff)) {
+          purgedCount++;
+        }
+      }
+    }
+
+    LOG.info("purgeGames: inactiveSeconds: {}, status: {}, purgedCount: {}", inactiveSeconds, status, purgedCount);
+
+    return new ResponseEntity<>(new PurgedGames(purgedCount), HttpStatus.OK);
+  }
+
+  /**
+   * GET /admin/events/stats
+   *
+   * Gets statistics about the game event log, so that gaps in it can be detected.
+   *
+   * @return a ResponseEntity containing an EventLogStats object, giving the number of events written, dropped because
+   * the ring buffer was full, and lost to I/O errors. HTTP status OK (200).
+   */
+  @RequestMapping(method = RequestMethod.GET, value = "/admin/events/stats", produces = MEDIA_TYPE_APPLICATION_JSON)
+  public ResponseEntity<EventLogStats> getEventLogStats() {
+    final EventLogStats eventLogStats = new EventLogStats(gameEventLog.getEventsWritten(),
+        gameEventLog.getEventsDropped(), gameEventLog.getEventsLost());
+
+    return new ResponseEntity<>(eventLogStats, HttpStatus.OK);
+  }
+
+  /**
+   * Finds the games with the given status and/or inactive for the given time, using the last activity index if an
+   * inactive time is given, otherwise the status index.
+   */
+  private Stream<GameBoard> findGames(final GameBoard.GameStatus status, final Long inactiveSeconds) {
+    if (inactiveSeconds != null) {
+      final Stream<GameBoard> gameBoards = games.inactiveSince(getCutoff(inactiveSeconds));
+      return status == null ? gameBoards
+          : gameBoards.filter(gameBoard -> gameBoard.getCurrentGameStatus() == status);
+    }
+
+    return status == null ? games.all() : games.withStatus(status);
+  }
+
+  private long getCutoff(final long inactiveSeconds) {
+    return System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(inactiveSeconds);
+  }
+}
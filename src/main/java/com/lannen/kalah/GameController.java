@@ -2,11 +2,17 @@ package com.lannen.kalah;
 
 import com.lannen.kalah.domain.GameBoard;
 import com.lannen.kalah.domain.GameMove;
+import com.lannen.kalah.domain.GameSettings;
 import com.lannen.kalah.domain.NewGame;
 import com.lannen.kalah.domain.NextPlayer;
+import com.lannen.kalah.domain.SpectatorStats;
+import com.lannen.kalah.events.GameEventLog;
+import com.lannen.kalah.events.GameEventType;
+import com.lannen.kalah.spectator.GameBroadcaster;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.StringUtils;
@@ -16,13 +22,14 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
 
 /**
- * Provides 4 REST routes for playing six stone Kalah, as documented below.
+ * Provides 5 REST routes for playing and spectating six stone Kalah, as documented below. Spectators can also watch a
+ * game live over the WebSocket at /game/{gameId}/watch.
  * @author William Lannen
  */
 @RestController
@@ -30,23 +37,50 @@ public class GameController {
   private static final Logger LOG = LoggerFactory.getLogger(GameController.class);
   private static final String MEDIA_TYPE_APPLICATION_JSON = "application/json";
   private static final int OFFSET_FOR_OPPONENT_PIT = 5;
-
-  private Map<String, GameBoard> games = new ConcurrentHashMap<>();
+  private static final int MAX_EVENTS_PER_MOVE = 4;
+
+  private final GameStore games;
+  private final GameLifecycle gameLifecycle;
+  private final GameBroadcaster gameBroadcaster;
+  private final GameEventLog gameEventLog;
+
+  @Autowired
+  public GameController(GameStore games, GameLifecycle gameLifecycle, GameBroadcaster gameBroadcaster,
+      GameEventLog gameEventLog) {
+    this.games = games;
+    this.gameLifecycle = gameLifecycle;
+    this.gameBroadcaster = gameBroadcaster;
+    this.gameEventLog = gameEventLog;
+  }
 
   /**
    * POST /game
    *
-   * Allows a player to start a new game.
+   * Allows a player to start a new game. If a second player has not joined within the join timeout, the game expires
+   * and is removed.
+   *
+   * @param gameSettings optionally, the join and move timeouts for the game. If not given, the defaults are used.
    *
    * @return a ResponseEntity containing the NewGame object, giving the player their id, position (north or south)
    * and the game board. HTTP status CREATED (204).
+   *
+   * Failing calls will return a ResponseEntity with a suitable HTTP error code:
+   *
+   * BAD_REQUEST (400): the GameSettings object has a negative timeout or no timeout action.
    */
   @RequestMapping(method = RequestMethod.POST, value = "/game", produces = MEDIA_TYPE_APPLICATION_JSON)
-  public ResponseEntity<NewGame> newGame() {
-    LOG.info("newGame");
+  public ResponseEntity<NewGame> newGame(@RequestBody(required = false) GameSettings gameSettings) {
+    if (gameSettings != null && (gameSettings.getJoinTimeoutSeconds() < 0 || gameSettings.getMoveTimeoutSeconds() < 0
+        || gameSettings.getTimeoutAction() == null)) {
+      return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
 
     GameBoard gameBoard = new GameBoard();
 
+    if (gameSettings != null) {
+      gameBoard.setGameSettings(gameSettings);
+    }
+
     final String playerId = UUID.randomUUID().toString();
 
     // Randomly make the player north or south
@@ -59,14 +93,9 @@ public class GameController {
       playerPosition = GameBoard.PlayerPosition.SOUTH;
     }
 
-    games.put(gameBoard.getGameId(), gameBoard);
+    gameLifecycle.create(gameBoard, playerPosition);
 
-    final ResponseEntity<NewGame> response
-        = new ResponseEntity<>(new NewGame(playerId, playerPosition, gameBoard), HttpStatus.CREATED);
-
-    LOG.debug("newGame: returning response: {}", response);
-
-    return response;
+    return new ResponseEntity<>(new NewGame(playerId, playerPosition, gameBoard), HttpStatus.CREATED);
   }
 
   /**
@@ -81,44 +110,51 @@ public class GameController {
    *
    * Failing calls will return a ResponseEntity with a suitable HTTP error code:
    *
-   * NOT_FOUND (404): game not found with the given id.
+   * NOT_FOUND (404): game not found with the given id, or it has expired.
    * BAD_REQUEST (400): the game is already in progress.
    */
   @RequestMapping(method = RequestMethod.POST, value = "/game/{gameId}", produces = MEDIA_TYPE_APPLICATION_JSON)
   public ResponseEntity<NewGame> joinGame(@PathVariable String gameId) {
-    LOG.info("joinGame: gameId: {}", gameId);
-
     final GameBoard gameBoard = games.get(gameId);
 
     if (gameBoard == null) {
       return new ResponseEntity<>(HttpStatus.NOT_FOUND);
     }
 
-    if (gameBoard.getCurrentGameStatus() != GameBoard.GameStatus.NOT_STARTED) {
-      return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-    }
-
     final String playerId = UUID.randomUUID().toString();
-
-    // Put the player in the free position
     GameBoard.PlayerPosition playerPosition;
-    if (gameBoard.getSouthPlayerId() != null) {
-        gameBoard.setNorthPlayerId(playerId);
-        playerPosition = GameBoard.PlayerPosition.NORTH;
-    }
-    else {
-      gameBoard.setSouthPlayerId(playerId);
-      playerPosition = GameBoard.PlayerPosition.SOUTH;
-    }
+    final GameEventLog.CapturedEvent joined;
+
+    synchronized (gameBoard) {
+      // The game may have expired since it was looked up
+      if (games.get(gameId) != gameBoard) {
+        return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+      }
 
-    gameBoard.setCurrentGameStatus(GameBoard.GameStatus.IN_PROGRESS);
+      if (gameBoard.getCurrentGameStatus() != GameBoard.GameStatus.NOT_STARTED) {
+        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+      }
 
-    final ResponseEntity<NewGame> response
-      = new ResponseEntity<>(new NewGame(playerId, playerPosition, gameBoard), HttpStatus.OK);
+      // Put the player in the free position
+      if (gameBoard.getSouthPlayerId() != null) {
+          gameBoard.setNorthPlayerId(playerId);
+          playerPosition = GameBoard.PlayerPosition.NORTH;
+      }
+      else {
+        gameBoard.setSouthPlayerId(playerId);
+        playerPosition = GameBoard.PlayerPosition.SOUTH;
+      }
 
-    LOG.debug("joinGame: returning response: {}", response);
+      gameBoard.setCurrentGameStatus(GameBoard.GameStatus.IN_PROGRESS);
+      startMoveClock(gameBoard);
+      games.touch(gameBoard);
+      joined = gameEventLog.capture(GameEventType.JOINED, gameBoard, playerPosition, -1, 0);
+    }
 
-    return response;
+    gameEventLog.record(joined);
+    gameBroadcaster.publish(gameBoard);
+
+    return new ResponseEntity<>(new NewGame(playerId, playerPosition, gameBoard), HttpStatus.OK);
   }
 
   /**
@@ -174,15 +210,13 @@ public class GameController {
    * Failing calls will return a ResponseEntity with a suitable HTTP error code:
    *
    * BAD_REQUEST (400): the GameMove object is not suitably populated, or the chosen pit has no stones, or is
-   * not in the allowable range (0-5).
-   * NOT_FOUND (404): game not found with the given id.
+   * not in the allowable range (0-5), or the game is not in progress (e.g. a player has run out of time and forfeited).
+   * NOT_FOUND (404): game not found with the given id, or it has been purged.
    * UNAUTHORIZED (401): the playerId given on the GameMove object is not the next player.
    *
    */
   @RequestMapping(method = RequestMethod.POST, value = "/game/{gameId}/play", consumes = MEDIA_TYPE_APPLICATION_JSON, produces = MEDIA_TYPE_APPLICATION_JSON)
   public ResponseEntity<GameBoard> playGame(@PathVariable String gameId, @RequestBody GameMove gameMove) {
-    LOG.debug("playGame: gameId: {}, gameMove: {}", gameId, gameMove);
-
     if (gameMove == null || StringUtils.isEmpty(gameMove.getPlayerId()) || StringUtils.isEmpty(gameMove.getPitId())) {
       return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
     }
@@ -194,22 +228,89 @@ public class GameController {
     }
 
     final String playerId = gameMove.getPlayerId();
+    final int pitId = gameMove.getPitId();
+    final List<GameEventLog.CapturedEvent> events = new ArrayList<>(MAX_EVENTS_PER_MOVE);
+
+    try {
+      synchronized (gameBoard) {
+        // The game may have been purged since it was looked up
+        if (games.get(gameId) != gameBoard) {
+          return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        if (gameBoard.getCurrentGameStatus() != GameBoard.GameStatus.IN_PROGRESS) {
+          return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        if (!gameBoard.getNextPlayerId().equals(playerId)) {
+          return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+        }
 
-    if (!gameBoard.getNextPlayerId().equals(playerId)) {
-      return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+        if (pitId < 0 || pitId >= GameBoard.KALAH_INDEX) {
+          return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        if (!playMove(gameBoard, pitId, events)) {
+          return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+      }
+    } finally {
+      // Recorded once the lock is released, so the game is never held up by the event log
+      gameEventLog.record(events);
     }
 
-    int pitId = gameMove.getPitId();
+    gameBroadcaster.publish(gameBoard);
 
-    if (pitId < 0 || pitId >= GameBoard.KALAH_INDEX) {
-      return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    return new ResponseEntity<>(gameBoard, HttpStatus.OK);
+  }
+
+  /**
+   * GET /game/{gameId}/spectators
+   *
+   * Allows the number of spectators watching a game, and how quickly updates are being fanned out to them, to be
+   * monitored.
+   *
+   * @param gameId the id of the game
+   *
+   * @return on success, a ResponseEntity containing a SpectatorStats object. HTTP status OK (200).
+   *
+   * Failing calls will return a ResponseEntity with a suitable HTTP error code:
+   *
+   * NOT_FOUND (404): game not found with the given id.
+   */
+  @RequestMapping(method = RequestMethod.GET, value = "/game/{gameId}/spectators", produces = MEDIA_TYPE_APPLICATION_JSON)
+  public ResponseEntity<SpectatorStats> getSpectatorStats(@PathVariable String gameId) {
+    LOG.debug("getSpectatorStats: gameId: {}", gameId);
+
+    final SpectatorStats spectatorStats = gameBroadcaster.getStats(gameId);
+
+    if (spectatorStats == null) {
+      return new ResponseEntity<>(HttpStatus.NOT_FOUND);
     }
 
+    return new ResponseEntity<>(spectatorStats, HttpStatus.OK);
+  }
+
+  /**
+   * Plays a move for the next player, sowing the stones from their chosen pit, and then either passing the turn to the
+   * opponent or ending the game. Must be called holding the game board's lock.
+   *
+   * @param gameBoard the game board
+   * @param chosenPitId the next player's chosen pit (0-5)
+   * @param events the list to add the game events captured to, to be recorded once the lock has been released
+   *
+   * @return true if the move was played, false if the chosen pit has no stones
+   */
+  private boolean playMove(final GameBoard gameBoard, final int chosenPitId,
+      final List<GameEventLog.CapturedEvent> events) {
+    int pitId = chosenPitId;
+
     int[] playerPits;
     int[] opponentPits;
 
+    final GameBoard.PlayerPosition playerPosition = gameBoard.getNextPlayer();
     GameBoard.PlayerPosition opponentPosition;
-    if (gameBoard.getNorthPlayerId().equals(playerId)) {
+    if (playerPosition == GameBoard.PlayerPosition.NORTH) {
       playerPits = gameBoard.getNorthPits();
       opponentPits = gameBoard.getSouthPits();
       opponentPosition = GameBoard.PlayerPosition.SOUTH;
@@ -224,15 +325,13 @@ public class GameController {
     playerPits[pitId] = 0;
 
     if (stones == 0) {
-      return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+      return false;
     }
 
     // Drop the stones to the right
     while (stones > 0) {
       pitId++;
 
-      LOG.trace("Dropping stones: stones: {}, pitId: {}", stones, pitId);
-
       // Drop in any of the player's pits including the kalah
       if (pitId <= GameBoard.KALAH_INDEX) {
         playerPits[pitId]++;
@@ -240,9 +339,6 @@ public class GameController {
       } else {
         final int opponentPitId = pitId - playerPits.length;
 
-        LOG.trace("Dropping stones in opponents pits: stones: {}, pitId: {}, opponentPitId: {}",
-            stones, pitId, opponentPitId);
-
         // If we get to the opponent's kalah, don't drop a stone and loop back around
         // to the player's pits
         if (opponentPitId == GameBoard.KALAH_INDEX) {
@@ -255,33 +351,89 @@ public class GameController {
       }
     }
 
-    checkToTakeStonesFromOpponentPit(pitId, playerPits, opponentPits);
+    final int capturedStones = checkToTakeStonesFromOpponentPit(pitId, playerPits, opponentPits);
     checkForGameOver(gameBoard, playerPits, opponentPits);
+    gameBoard.incrementMoveCount();
+
+    events.add(gameEventLog.capture(GameEventType.MOVED, gameBoard, playerPosition, chosenPitId, 0));
+
+    if (capturedStones > 0) {
+      events.add(gameEventLog.capture(GameEventType.CAPTURED, gameBoard, playerPosition, pitId, capturedStones));
+    }
 
     // If the game is over, set the winner, otherwise set the next player
     if (gameBoard.getCurrentGameStatus() == GameBoard.GameStatus.GAME_OVER) {
       setWinner(gameBoard, playerPits, opponentPits, opponentPosition);
+      gameLifecycle.stopClock(gameBoard);
+      events.add(gameEventLog.capture(GameEventType.GAME_OVER, gameBoard, gameBoard.getWinner(), -1, 0));
     } else {
       gameBoard.setNextPlayer(opponentPosition);
+      startMoveClock(gameBoard);
     }
 
-    final ResponseEntity<GameBoard> response = new ResponseEntity<>(gameBoard, HttpStatus.OK);
+    games.touch(gameBoard);
 
-    if (gameBoard.getCurrentGameStatus() == GameBoard.GameStatus.GAME_OVER) {
-      LOG.info("playGame: GAME OVER: returning response: {}", response);
-    }
-    else {
-      LOG.debug("playGame: returning response: {}", response);
+    return true;
+  }
+
+  /**
+   * Starts the clock for the next player to play their move, if the game has a move timeout. Must be called holding the
+   * game board's lock.
+   *
+   * @param gameBoard the game board
+   */
+  private void startMoveClock(final GameBoard gameBoard) {
+    final int moveCount = gameBoard.getMoveCount();
+    gameLifecycle.startMoveClock(gameBoard, () -> moveTimedOut(gameBoard, moveCount));
+  }
+
+  /**
+   * Called by the timer wheel when the move timeout of a game runs out. If the next player still hasn't moved, they
+   * either forfeit the game or have a move played for them, depending on the game settings.
+   *
+   * @param gameBoard the game board
+   * @param moveCount the move count when the clock was started
+   */
+  private void moveTimedOut(final GameBoard gameBoard, final int moveCount) {
+    final List<GameEventLog.CapturedEvent> events = new ArrayList<>(MAX_EVENTS_PER_MOVE);
+
+    try {
+      synchronized (gameBoard) {
+        // Ignore the timeout if the game has been purged
+        if (games.get(gameBoard.getGameId()) != gameBoard) {
+          return;
+        }
+
+        // Ignore the timeout if the player has moved in the meantime
+        if (gameBoard.getCurrentGameStatus() != GameBoard.GameStatus.IN_PROGRESS
+            || gameBoard.getMoveCount() != moveCount) {
+          return;
+        }
+
+        final GameSettings.TimeoutAction timeoutAction = gameBoard.getGameSettings().getTimeoutAction();
+        events.add(gameEventLog.capture(GameEventType.TIMED_OUT, gameBoard, gameBoard.getNextPlayer(), -1,
+            timeoutAction.ordinal()));
+
+        if (timeoutAction == GameSettings.TimeoutAction.AUTO_PLAY) {
+          playMove(gameBoard, gameBoard.getFirstNonEmptyPit(), events);
+        } else {
+          gameBoard.setWinner(gameBoard.getNextPlayer() == GameBoard.PlayerPosition.NORTH
+              ? GameBoard.PlayerPosition.SOUTH : GameBoard.PlayerPosition.NORTH);
+          gameBoard.setCurrentGameStatus(GameBoard.GameStatus.GAME_OVER);
+          gameLifecycle.stopClock(gameBoard);
+          games.touch(gameBoard);
+          events.add(gameEventLog.capture(GameEventType.GAME_OVER, gameBoard, gameBoard.getWinner(), -1, 0));
+        }
+      }
+    } finally {
+      gameEventLog.record(events);
     }
 
-    return response;
+    gameBroadcaster.publish(gameBoard);
   }
 
   private void setWinner(final GameBoard gameBoard, final int[] playerPits, final int[] opponentPits,
       final GameBoard.PlayerPosition opponentPosition) {
-    LOG.debug("setWinner: playerPits: {}, opponentPits: {}, opponentPosition: {}, gameBoard: {}",
-        playerPits, opponentPits, opponentPosition, gameBoard);
-
     if (playerPits[GameBoard.KALAH_INDEX] > opponentPits[GameBoard.KALAH_INDEX]) {
       gameBoard.setWinner(gameBoard.getNextPlayer()); // current player as this hasn't been changed yet
     } else if (playerPits[GameBoard.KALAH_INDEX] == opponentPits[GameBoard.KALAH_INDEX]) {
@@ -300,8 +452,6 @@ public class GameController {
    * @param opponentPits the opponent's pits
    */
   private void checkForGameOver(final GameBoard gameBoard, final int[] playerPits, final int[] opponentPits) {
-    LOG.debug("checkForGameOver: playerPits: {}, opponentPits: {},  gameBoard: {}", playerPits, opponentPits, gameBoard);
-
     final int playerTotalStones = getStoneCountForPitsExcludingKalahs(playerPits);
     final int opponentTotalStones = getStoneCountForPitsExcludingKalahs(opponentPits);
 
@@ -320,11 +470,9 @@ public class GameController {
    * @param pitId the final pit
    * @param playerPits the player's pits
    * @param opponentPits the opponent's pits
+   * @return the number of stones moved to the player's kalah, or 0 if none
    */
-  private void checkToTakeStonesFromOpponentPit(final int pitId, final int[] playerPits, final int[] opponentPits) {
-    LOG.debug("checkToTakeStonesFromOpponentPit: pitId: {}, playerPits: {},  opponentPits: {}",
-        pitId, playerPits, opponentPits);
-
+  private int checkToTakeStonesFromOpponentPit(final int pitId, final int[] playerPits, final int[] opponentPits) {
     if (pitId < GameBoard.KALAH_INDEX) {
       // If the pit just has the stone played in it, then it was an empty pit
       if (playerPits[pitId] == 1) {
@@ -337,7 +485,8 @@ public class GameController {
          *     0  1  2  3  4  5
          *
          */
-        playerPits[GameBoard.KALAH_INDEX] += opponentPits[OFFSET_FOR_OPPONENT_PIT-pitId];
+        final int capturedStones = opponentPits[OFFSET_FOR_OPPONENT_PIT-pitId];
+        playerPits[GameBoard.KALAH_INDEX] += capturedStones;
 
         // also take the stone from the pit itself
         playerPits[GameBoard.KALAH_INDEX] += 1;
@@ -345,8 +494,12 @@ public class GameController {
         // both pits are now empty
         playerPits[pitId] = 0;
         opponentPits[OFFSET_FOR_OPPONENT_PIT-pitId] = 0;
+
+        return capturedStones + 1;
       }
     }
+
+    return 0;
   }
 
   /**
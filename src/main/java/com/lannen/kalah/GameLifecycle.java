@@ -0,0 +1,160 @@
+package com.lannen.kalah;
+
+import com.lannen.kalah.domain.GameBoard;
+import com.lannen.kalah.events.GameEventLog;
+import com.lannen.kalah.events.GameEventType;
+import com.lannen.kalah.spectator.GameBroadcaster;
+import com.lannen.kalah.timer.HashedTimerWheel;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Manages the lifecycle of the games, outside of the game play itself: adding new games, running their join and move
+ * clocks, and removing them when they expire or are purged. Used by both the GameController and the AdminController.
+ */
+@Component
+public class GameLifecycle {
+  private final GameStore games;
+  private final GameBroadcaster gameBroadcaster;
+  private final HashedTimerWheel timerWheel;
+  private final GameEventLog gameEventLog;
+
+  /**
+   * The pending join or move timeout of each game that has one.
+   */
+  private final Map<String, HashedTimerWheel.Timeout> clocks = new ConcurrentHashMap<>();
+
+  @Autowired
+  public GameLifecycle(GameStore games, GameBroadcaster gameBroadcaster, HashedTimerWheel timerWheel,
+      GameEventLog gameEventLog) {
+    this.games = games;
+    this.gameBroadcaster = gameBroadcaster;
+    this.timerWheel = timerWheel;
+    this.gameEventLog = gameEventLog;
+  }
+
+  /**
+   * Adds a new game, makes it available to be watched, and starts the clock for a second player to join it, if it has
+   * a join timeout. If no one joins in time, the game expires and is removed.
+   *
+   * @param gameBoard the game board
+   * @param playerPosition the position of the player who created the game
+   */
+  public void create(final GameBoard gameBoard, final GameBoard.PlayerPosition playerPosition) {
+    // Captured before the game can be seen by anyone else, so it comes before any other event for the game
+    final GameEventLog.CapturedEvent created
+        = gameEventLog.capture(GameEventType.CREATED, gameBoard, playerPosition, -1, 0);
+
+    try {
+      games.add(gameBoard);
+      gameBroadcaster.register(gameBoard);
+      startJoinClock(gameBoard);
+    } finally {
+      gameEventLog.record(created);
+    }
+  }
+
+  /**
+   * Starts the clock for the next player to play their move, if the game has a move timeout, replacing any clock
+   * already running. Must be called holding the game board's lock.
+   *
+   * @param gameBoard the game board
+   * @param onTimeout run by the timer wheel if the move timeout runs out. It must check whether the player has moved
+   * in the meantime, as the clock may be stopped too late to cancel it.
+   */
+  public void startMoveClock(final GameBoard gameBoard, final Runnable onTimeout) {
+    final int moveTimeoutSeconds = gameBoard.getGameSettings().getMoveTimeoutSeconds();
+
+    if (moveTimeoutSeconds <= 0) {
+      stopClock(gameBoard);
+      return;
+    }
+
+    gameBoard.setMoveDeadline(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(moveTimeoutSeconds));
+    setClock(gameBoard, timerWheel.schedule(onTimeout, moveTimeoutSeconds, TimeUnit.SECONDS));
+  }
+
+  /**
+   * Stops the clock of the given game, if it has one running. Must be called holding the game board's lock.
+   *
+   * @param gameBoard the game board
+   */
+  public void stopClock(final GameBoard gameBoard) {
+    gameBoard.setMoveDeadline(0);
+
+    final HashedTimerWheel.Timeout timeout = clocks.remove(gameBoard.getGameId());
+
+    if (timeout != null) {
+      timeout.cancel();
+    }
+  }
+
+  /**
+   * Purges a stale game, if there has been no activity in it since the given cutoff time. Stops its clock and closes
+   * any spectator sessions.
+   *
+   * @param gameBoard the game board
+   * @param cutoff the cutoff time, in milliseconds since the epoch
+   * @return true if purged, false if the game has been active since the cutoff or had already been removed
+   */
+  public boolean purge(final GameBoard gameBoard, final long cutoff) {
+    final GameEventLog.CapturedEvent purged;
+
+    synchronized (gameBoard) {
+      if (games.getLastActivity(gameBoard.getGameId()) >= cutoff || !games.remove(gameBoard)) {
+        return false;
+      }
+
+      stopClock(gameBoard);
+      purged = gameEventLog.capture(GameEventType.PURGED, gameBoard, null, -1, 0);
+    }
+
+    gameEventLog.record(purged);
+    gameBroadcaster.remove(gameBoard.getGameId());
+    return true;
+  }
+
+  private void startJoinClock(final GameBoard gameBoard) {
+    final int joinTimeoutSeconds = gameBoard.getGameSettings().getJoinTimeoutSeconds();
+
+    if (joinTimeoutSeconds > 0) {
+      setClock(gameBoard, timerWheel.schedule(() -> expireUnjoinedGame(gameBoard), joinTimeoutSeconds,
+          TimeUnit.SECONDS));
+    }
+  }
+
+  private void setClock(final GameBoard gameBoard, final HashedTimerWheel.Timeout timeout) {
+    final HashedTimerWheel.Timeout previous = clocks.put(gameBoard.getGameId(), timeout);
+
+    if (previous != null) {
+      previous.cancel();
+    }
+  }
+
+  /**
+   * Called by the timer wheel when the join timeout of a game runs out. Removes the game if no one has joined it.
+   *
+   * @param gameBoard the game board
+   */
+  private void expireUnjoinedGame(final GameBoard gameBoard) {
+    final GameEventLog.CapturedEvent expired;
+
+    synchronized (gameBoard) {
+      if (gameBoard.getCurrentGameStatus() != GameBoard.GameStatus.NOT_STARTED) {
+        return;
+      }
+
+      games.remove(gameBoard);
+      clocks.remove(gameBoard.getGameId());
+      expired = gameEventLog.capture(GameEventType.EXPIRED, gameBoard, null, -1, 0);
+    }
+
+    gameEventLog.record(expired);
+    gameBroadcaster.remove(gameBoard.getGameId());
+  }
+}
@@ -0,0 +1,211 @@
+package com.lannen.kalah;
+
+import com.lannen.kalah.domain.GameBoard;
+
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Stores the games, with secondary indexes by game status and by last activity time, so that games can be queried and
+ * purged without scanning every game.
+ *
+ * The indexes are kept up to date by calling touch after changing a game board. Changes to the indexes for a game are
+ * made holding its game board's lock, so they are never interleaved. Queries are weakly consistent: they never fail due
+ * to concurrent changes, but may or may not see changes made while they are running. The streams returned can be made
+ * parallel to split a scan across threads.
+ */
+@Component
+public class GameStore {
+  /**
+   * The resolution of the last activity index. A game is only moved in the index when its last activity has changed by
+   * at least this much, so a game being played quickly is not removed and re-added to the index on every move.
+   */
+  static final long ACTIVITY_RESOLUTION_MILLIS = TimeUnit.SECONDS.toMillis(1);
+
+  private final Map<String, Entry> games = new ConcurrentHashMap<>();
+  private final Map<GameBoard.GameStatus, Set<String>> gamesByStatus = new EnumMap<>(GameBoard.GameStatus.class);
+  private final ConcurrentSkipListSet<ActivityKey> gamesByLastActivity = new ConcurrentSkipListSet<>();
+
+  public GameStore() {
+    for (GameBoard.GameStatus gameStatus : GameBoard.GameStatus.values()) {
+      gamesByStatus.put(gameStatus, ConcurrentHashMap.newKeySet());
+    }
+  }
+
+  /**
+   * Adds a new game.
+   *
+   * @param gameBoard the game board
+   */
+  public void add(final GameBoard gameBoard) {
+    final Entry entry = new Entry(gameBoard);
+    games.put(gameBoard.getGameId(), entry);
+    index(entry);
+  }
+
+  /**
+   * @param gameId the game id
+   * @return the game board, or null if there is no game with the given id
+   */
+  public GameBoard get(final String gameId) {
+    final Entry entry = games.get(gameId);
+    return entry == null ? null : entry.gameBoard;
+  }
+
+  /**
+   * @param gameId the game id
+   * @return when the game was last changed, in milliseconds since the epoch, or 0 if there is no game with the given id
+   */
+  public long getLastActivity(final String gameId) {
+    final Entry entry = games.get(gameId);
+    return entry == null ? 0 : entry.lastActivity;
+  }
+
+  /**
+   * Removes the given game, if it is still stored. Must be called holding the game board's lock.
+   *
+   * @param gameBoard the game board
+   * @return true if removed
+   */
+  public boolean remove(final GameBoard gameBoard) {
+    final Entry entry = games.get(gameBoard.getGameId());
+
+    if (entry == null || entry.gameBoard != gameBoard || !games.remove(gameBoard.getGameId(), entry)) {
+      return false;
+    }
+
+    gamesByStatus.get(entry.indexedStatus).remove(gameBoard.getGameId());
+    gamesByLastActivity.remove(entry.activityKey);
+    return true;
+  }
+
+  /**
+   * Records that the given game has changed, updating the indexes. Must be called holding the game board's lock.
+   *
+   * @param gameBoard the game board
+   */
+  public void touch(final GameBoard gameBoard) {
+    final Entry entry = games.get(gameBoard.getGameId());
+
+    if (entry == null || entry.gameBoard != gameBoard) {
+      return;
+    }
+
+    final long now = System.currentTimeMillis();
+    entry.lastActivity = now;
+
+    final GameBoard.GameStatus gameStatus = gameBoard.getCurrentGameStatus();
+    if (gameStatus != entry.indexedStatus) {
+      gamesByStatus.get(gameStatus).add(gameBoard.getGameId());
+      gamesByStatus.get(entry.indexedStatus).remove(gameBoard.getGameId());
+      entry.indexedStatus = gameStatus;
+    }
+
+    if (now - entry.activityKey.lastActivity >= ACTIVITY_RESOLUTION_MILLIS) {
+      final ActivityKey activityKey = new ActivityKey(now, gameBoard.getGameId());
+      gamesByLastActivity.add(activityKey);
+      gamesByLastActivity.remove(entry.activityKey);
+      entry.activityKey = activityKey;
+    }
+  }
+
+  /**
+   * @return the number of games
+   */
+  public int size() {
+    return games.size();
+  }
+
+  /**
+   * @param gameStatus the game status
+   * @return the number of games with the given status
+   */
+  public int count(final GameBoard.GameStatus gameStatus) {
+    return gamesByStatus.get(gameStatus).size();
+  }
+
+  /**
+   * @return a stream of all the games
+   */
+  public Stream<GameBoard> all() {
+    return games.values().stream().map(entry -> entry.gameBoard);
+  }
+
+  /**
+   * @param gameStatus the game status
+   * @return a stream of the games with the given status, found using the status index
+   */
+  public Stream<GameBoard> withStatus(final GameBoard.GameStatus gameStatus) {
+    return gamesByStatus.get(gameStatus).stream().map(this::get).filter(Objects::nonNull);
+  }
+
+  /**
+   * @param cutoff the cutoff time, in milliseconds since the epoch
+   * @return a stream of the games with no activity since the given cutoff, found using the last activity index, least
+   * recently active first. The cutoff is accurate to ACTIVITY_RESOLUTION_MILLIS.
+   */
+  public Stream<GameBoard> inactiveSince(final long cutoff) {
+    return gamesByLastActivity.headSet(new ActivityKey(cutoff, "")).stream()
+        .map(activityKey -> get(activityKey.gameId))
+        .filter(Objects::nonNull);
+  }
+
+  private void index(final Entry entry) {
+    gamesByStatus.get(entry.indexedStatus).add(entry.gameBoard.getGameId());
+    gamesByLastActivity.add(entry.activityKey);
+  }
+
+  /**
+   * A stored game, along with how it is currently indexed.
+   */
+  private static final class Entry {
+    final GameBoard gameBoard;
+    volatile long lastActivity;
+    GameBoard.GameStatus indexedStatus;
+    ActivityKey activityKey;
+
+    Entry(final GameBoard gameBoard) {
+      this.gameBoard = gameBoard;
+      this.lastActivity = System.currentTimeMillis();
+      this.indexedStatus = gameBoard.getCurrentGameStatus();
+      this.activityKey = new ActivityKey(lastActivity, gameBoard.getGameId());
+    }
+  }
+
+  /**
+   * A key in the last activity index, ordered by last activity time and then game id.
+   */
+  private static final class ActivityKey implements Comparable<ActivityKey> {
+    final long lastActivity;
+    final String gameId;
+
+    ActivityKey(final long lastActivity, final String gameId) {
+      this.lastActivity = lastActivity;
+      this.gameId = gameId;
+    }
+
+    @Override
+    public int compareTo(final ActivityKey other) {
+      final int compare = Long.compare(lastActivity, other.lastActivity);
+      return compare != 0 ? compare : gameId.compareTo(other.gameId);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      return o instanceof ActivityKey && compareTo((ActivityKey) o) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(lastActivity) * 31 + gameId.hashCode();
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package com.lannen.kalah;
+
+import com.lannen.kalah.events.GameEventLog;
+import com.lannen.kalah.spectator.GameBroadcaster;
+import com.lannen.kalah.timer.HashedTimerWheel;
+
+/**
+ * A GameController wired up as the application does, but with its own game store, broadcaster and timer wheel, so
+ * games can be played outside of the application, e.g. by the startup warm-up and the tests. Must be closed to stop
+ * the broadcaster's and timer wheel's threads.
+ */
+public class StandaloneGames implements AutoCloseable {
+  private final GameStore gameStore = new GameStore();
+  private final GameBroadcaster gameBroadcaster;
+  private final HashedTimerWheel timerWheel;
+  private final GameLifecycle gameLifecycle;
+  private final GameController gameController;
+
+  /**
+   * @param gameBroadcaster the broadcaster, which is shut down on close
+   * @param timerWheel the timer wheel, which is stopped on close
+   * @param gameEventLog the game event log, which is left open on close
+   */
+  public StandaloneGames(GameBroadcaster gameBroadcaster, HashedTimerWheel timerWheel, GameEventLog gameEventLog) {
+    this.gameBroadcaster = gameBroadcaster;
+    this.timerWheel = timerWheel;
+    this.gameLifecycle = new GameLifecycle(gameStore, gameBroadcaster, timerWheel, gameEventLog);
+    this.gameController = new GameController(gameStore, gameLifecycle, gameBroadcaster, gameEventLog);
+  }
+
+  public GameStore getGameStore() {
+    return gameStore;
+  }
+
+  public GameLifecycle getGameLifecycle() {
+    return gameLifecycle;
+  }
+
+  public GameController getGameController() {
+    return gameController;
+  }
+
+  @Override
+  public void close() {
+    timerWheel.stop();
+    gameBroadcaster.shutdown();
+  }
+}
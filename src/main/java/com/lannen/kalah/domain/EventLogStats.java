@@ -0,0 +1,29 @@
+package com.lannen.kalah.domain;
+
+/**
+ * Used to return statistics about the game event log: how many events have been written, and how many are missing
+ * from it because they were dropped when the ring buffer was full, or lost to an I/O error.
+ */
+public class EventLogStats {
+  private long eventsWritten;
+  private long eventsDropped;
+  private long eventsLost;
+
+  public EventLogStats(long eventsWritten, long eventsDropped, long eventsLost) {
+    this.eventsWritten = eventsWritten;
+    this.eventsDropped = eventsDropped;
+    this.eventsLost = eventsLost;
+  }
+
+  public long getEventsWritten() {
+    return eventsWritten;
+  }
+
+  public long getEventsDropped() {
+    return eventsDropped;
+  }
+
+  public long getEventsLost() {
+    return eventsLost;
+  }
+}
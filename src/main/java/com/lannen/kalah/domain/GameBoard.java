@@ -1,5 +1,7 @@
 package com.lannen.kalah.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.util.Arrays;
 import java.util.UUID;
 
@@ -32,6 +34,11 @@ public class GameBoard {
    */
   private String gameId;
 
+  /**
+   * The unique id of the game, as a UUID, for recording in the game event log.
+   */
+  private UUID gameUuid;
+
   /**
    * The uniquie id of the north player.
    */
@@ -52,6 +59,22 @@ public class GameBoard {
    */
   private PlayerPosition winner;
 
+  /**
+   * The timeouts for the game.
+   */
+  private GameSettings gameSettings = new GameSettings();
+
+  /**
+   * The number of moves played so far, including any played automatically when a player ran out of time.
+   */
+  private int moveCount;
+
+  /**
+   * When the next player must play their move by, in milliseconds since the epoch. A value of 0 indicates there is no
+   * deadline, i.e. the game is not in progress or has no move timeout.
+   */
+  private long moveDeadline;
+
   /**
    * The player's pits, including their kalah, as shown below.
    *
@@ -64,7 +87,8 @@ public class GameBoard {
   private int[] northPits = new int[TOTAL_PITS_EACH];
 
   public GameBoard() {
-    gameId = UUID.randomUUID().toString();
+    gameUuid = UUID.randomUUID();
+    gameId = gameUuid.toString();
 
     for (int i = 0; i < KALAH_INDEX; ++i) {
       southPits[i] = northPits[i] = INITIAL_STONE_COUNT;
@@ -78,6 +102,11 @@ public class GameBoard {
     return gameId;
   }
 
+  @JsonIgnore
+  public UUID getGameUuid() {
+    return gameUuid;
+  }
+
   public String getSouthPlayerId() {
     return southPlayerId;
   }
@@ -98,6 +127,18 @@ public class GameBoard {
     return currentGameStatus;
   }
 
+  public GameSettings getGameSettings() {
+    return gameSettings;
+  }
+
+  public int getMoveCount() {
+    return moveCount;
+  }
+
+  public long getMoveDeadline() {
+    return moveDeadline;
+  }
+
   public int[] getSouthPits() {
     return southPits;
   }
@@ -126,6 +167,18 @@ public class GameBoard {
     this.winner = winner;
   }
 
+  public void setGameSettings(GameSettings gameSettings) {
+    this.gameSettings = gameSettings;
+  }
+
+  public void incrementMoveCount() {
+    moveCount++;
+  }
+
+  public void setMoveDeadline(long moveDeadline) {
+    this.moveDeadline = moveDeadline;
+  }
+
   public String getNextPlayerId() {
     if (nextPlayer == PlayerPosition.NORTH) {
       return getNorthPlayerId();
@@ -135,6 +188,33 @@ public class GameBoard {
     }
   }
 
+  /**
+   * @return the next player's pits, including their kalah
+   */
+  @JsonIgnore
+  public int[] getNextPlayerPits() {
+    return nextPlayer == PlayerPosition.NORTH ? northPits : southPits;
+  }
+
+  /**
+   * Gets the next player's first (lowest numbered) pit with stones in it. While the game is in progress, there is
+   * always one.
+   *
+   * @return the pit id (0-5), or -1 if the next player has no stones left in their pits
+   */
+  @JsonIgnore
+  public int getFirstNonEmptyPit() {
+    final int[] pits = getNextPlayerPits();
+
+    for (int pitId = 0; pitId < KALAH_INDEX; pitId++) {
+      if (pits[pitId] > 0) {
+        return pitId;
+      }
+    }
+
+    return -1;
+  }
+
   @Override
   public String toString() {
     return "GameBoard{" +
@@ -144,6 +224,9 @@ public class GameBoard {
         ", northPlayerId='" + northPlayerId + '\'' +
         ", nextPlayer=" + nextPlayer +
         ", winner=" + winner +
+        ", gameSettings=" + gameSettings +
+        ", moveCount=" + moveCount +
+        ", moveDeadline=" + moveDeadline +
         ", southPits=" + Arrays.toString(southPits) +
         ", northPits=" + Arrays.toString(northPits) +
         '}';
@@ -0,0 +1,64 @@
+package com.lannen.kalah.domain;
+
+/**
+ * Can optionally be sent when starting a new game, to set how long the game waits for a second player to join and for
+ * each player to move, and what happens when a player runs out of time. A timeout of 0 means no timeout.
+ */
+public class GameSettings {
+  public static final int DEFAULT_JOIN_TIMEOUT_SECONDS = 600;
+  public static final int DEFAULT_MOVE_TIMEOUT_SECONDS = 120;
+
+  public enum TimeoutAction {
+    /**
+     * The player who runs out of time loses the game.
+     */
+    FORFEIT,
+
+    /**
+     * A move is played for the player who runs out of time, from their first (lowest numbered) pit with stones in it.
+     */
+    AUTO_PLAY
+  }
+
+  /**
+   * How long an unjoined game waits for a second player before it expires and is removed.
+   */
+  private int joinTimeoutSeconds = DEFAULT_JOIN_TIMEOUT_SECONDS;
+
+  /**
+   * How long each player has to play their move.
+   */
+  private int moveTimeoutSeconds = DEFAULT_MOVE_TIMEOUT_SECONDS;
+
+  private TimeoutAction timeoutAction = TimeoutAction.FORFEIT;
+
+  public GameSettings() {
+  }
+
+  public GameSettings(int joinTimeoutSeconds, int moveTimeoutSeconds, TimeoutAction timeoutAction) {
+    this.joinTimeoutSeconds = joinTimeoutSeconds;
+    this.moveTimeoutSeconds = moveTimeoutSeconds;
+    this.timeoutAction = timeoutAction;
+  }
+
+  public int getJoinTimeoutSeconds() {
+    return joinTimeoutSeconds;
+  }
+
+  public int getMoveTimeoutSeconds() {
+    return moveTimeoutSeconds;
+  }
+
+  public TimeoutAction getTimeoutAction() {
+    return timeoutAction;
+  }
+
+  @Override
+  public String toString() {
+    return "GameSettings{" +
+        "joinTimeoutSeconds=" + joinTimeoutSeconds +
+        ", moveTimeoutSeconds=" + moveTimeoutSeconds +
+        ", timeoutAction=" + timeoutAction +
+        '}';
+  }
+}
@@ -0,0 +1,68 @@
+package com.lannen.kalah.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Map;
+
+/**
+ * Used to return statistics about the games currently stored: how many there are with each status, the average number
+ * of moves played in the games in progress, and who won the games that are over.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class GameStats {
+  private Map<GameBoard.GameStatus, Integer> gamesByStatus;
+  private double averageMovesInProgress;
+  private long northWins;
+  private long southWins;
+  private long ties;
+
+  public GameStats(Map<GameBoard.GameStatus, Integer> gamesByStatus, double averageMovesInProgress, long northWins,
+      long southWins, long ties) {
+    this.gamesByStatus = gamesByStatus;
+    this.averageMovesInProgress = averageMovesInProgress;
+    this.northWins = northWins;
+    this.southWins = southWins;
+    this.ties = ties;
+  }
+
+  public Map<GameBoard.GameStatus, Integer> getGamesByStatus() {
+    return gamesByStatus;
+  }
+
+  public double getAverageMovesInProgress() {
+    return averageMovesInProgress;
+  }
+
+  public long getNorthWins() {
+    return northWins;
+  }
+
+  public long getSouthWins() {
+    return southWins;
+  }
+
+  public long getTies() {
+    return ties;
+  }
+
+  /**
+   * @return north's share of the games that are over and were won (ties are not counted), from 0 to 1, or null if
+   * none have been won yet
+   */
+  public Double getNorthWinShare() {
+    return getWinShare(northWins);
+  }
+
+  /**
+   * @return south's share of the games that are over and were won (ties are not counted), from 0 to 1, or null if
+   * none have been won yet
+   */
+  public Double getSouthWinShare() {
+    return getWinShare(southWins);
+  }
+
+  private Double getWinShare(final long wins) {
+    final long decided = northWins + southWins;
+    return decided == 0 ? null : (double) wins / decided;
+  }
+}
@@ -0,0 +1,43 @@
+package com.lannen.kalah.domain;
+
+/**
+ * Used to list games for administration. Like GameUpdate, the player ids are left out.
+ */
+public class GameSummary {
+  private String gameId;
+  private GameBoard.GameStatus currentGameStatus;
+  private int moveCount;
+  private GameBoard.PlayerPosition winner;
+  private long lastActivity;
+
+  public GameSummary(GameBoard gameBoard, long lastActivity) {
+    this.gameId = gameBoard.getGameId();
+    this.currentGameStatus = gameBoard.getCurrentGameStatus();
+    this.moveCount = gameBoard.getMoveCount();
+    this.winner = gameBoard.getWinner();
+    this.lastActivity = lastActivity;
+  }
+
+  public String getGameId() {
+    return gameId;
+  }
+
+  public GameBoard.GameStatus getCurrentGameStatus() {
+    return currentGameStatus;
+  }
+
+  public int getMoveCount() {
+    return moveCount;
+  }
+
+  public GameBoard.PlayerPosition getWinner() {
+    return winner;
+  }
+
+  /**
+   * @return when the game was last changed, in milliseconds since the epoch
+   */
+  public long getLastActivity() {
+    return lastActivity;
+  }
+}
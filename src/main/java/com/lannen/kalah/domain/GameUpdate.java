@@ -0,0 +1,59 @@
+package com.lannen.kalah.domain;
+
+/**
+ * A read-only view of a GameBoard pushed to spectators watching a game. The player ids are deliberately left out, as
+ * they are all that is needed to play a move on a player's behalf.
+ */
+public class GameUpdate {
+  private String gameId;
+  private GameBoard.GameStatus currentGameStatus;
+  private GameBoard.PlayerPosition nextPlayer;
+  private GameBoard.PlayerPosition winner;
+  private int moveCount;
+  private long moveDeadline;
+  private int[] southPits;
+  private int[] northPits;
+
+  public GameUpdate(GameBoard gameBoard) {
+    this.gameId = gameBoard.getGameId();
+    this.currentGameStatus = gameBoard.getCurrentGameStatus();
+    this.nextPlayer = gameBoard.getNextPlayer();
+    this.winner = gameBoard.getWinner();
+    this.moveCount = gameBoard.getMoveCount();
+    this.moveDeadline = gameBoard.getMoveDeadline();
+    this.southPits = gameBoard.getSouthPits().clone();
+    this.northPits = gameBoard.getNorthPits().clone();
+  }
+
+  public String getGameId() {
+    return gameId;
+  }
+
+  public GameBoard.GameStatus getCurrentGameStatus() {
+    return currentGameStatus;
+  }
+
+  public GameBoard.PlayerPosition getNextPlayer() {
+    return nextPlayer;
+  }
+
+  public GameBoard.PlayerPosition getWinner() {
+    return winner;
+  }
+
+  public int getMoveCount() {
+    return moveCount;
+  }
+
+  public long getMoveDeadline() {
+    return moveDeadline;
+  }
+
+  public int[] getSouthPits() {
+    return southPits;
+  }
+
+  public int[] getNorthPits() {
+    return northPits;
+  }
+}
@@ -0,0 +1,16 @@
+package com.lannen.kalah.domain;
+
+/**
+ * Used to return the number of games removed by a purge.
+ */
+public class PurgedGames {
+  private long purgedCount;
+
+  public PurgedGames(long purgedCount) {
+    this.purgedCount = purgedCount;
+  }
+
+  public long getPurgedCount() {
+    return purgedCount;
+  }
+}
@@ -0,0 +1,46 @@
+package com.lannen.kalah.domain;
+
+/**
+ * Used to return the spectator statistics for a game: the number of subscribers currently watching, how many updates
+ * have been published and dropped, and the fan-out latency (time from an update being published to it being written to
+ * a subscriber).
+ */
+public class SpectatorStats {
+  private int subscriberCount;
+  private long updatesPublished;
+  private long updatesDropped;
+  private long averageFanOutMicros;
+  private long maxFanOutMicros;
+
+  public SpectatorStats(int subscriberCount, long updatesPublished, long updatesDropped, long averageFanOutMicros,
+      long maxFanOutMicros) {
+    this.subscriberCount = subscriberCount;
+    this.updatesPublished = updatesPublished;
+    this.updatesDropped = updatesDropped;
+    this.averageFanOutMicros = averageFanOutMicros;
+    this.maxFanOutMicros = maxFanOutMicros;
+  }
+
+  public int getSubscriberCount() {
+    return subscriberCount;
+  }
+
+  public long getUpdatesPublished() {
+    return updatesPublished;
+  }
+
+  /**
+   * @return the number of updates that were replaced by a newer one before a slow subscriber could be sent them.
+   */
+  public long getUpdatesDropped() {
+    return updatesDropped;
+  }
+
+  public long getAverageFanOutMicros() {
+    return averageFanOutMicros;
+  }
+
+  public long getMaxFanOutMicros() {
+    return maxFanOutMicros;
+  }
+}
@@ -0,0 +1,125 @@
+package com.lannen.kalah.events;
+
+import com.lannen.kalah.domain.GameBoard;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * A game event read back from the game event log.
+ *
+ * Each event is written as a fixed layout, big-endian record of RECORD_SIZE bytes, as shown below. Positions are
+ * written as the ordinal of the PlayerPosition, and a missing position or pit as -1.
+ *
+ *   offset  size  field
+ *        0     8  timestamp (milliseconds since the epoch)
+ *        8    16  game id (most then least significant bits of the UUID)
+ *       24     4  move count
+ *       28     1  event type code
+ *       29     1  player position
+ *       30     1  pit id
+ *       31     1  value
+ *       32     7  south pits (including kalah)
+ *       39     7  north pits (including kalah)
+ *       46     2  reserved
+ *
+ * The meaning of the player, pit and value fields depends on the event type, see GameEventType.
+ */
+public class GameEvent {
+  public static final int RECORD_SIZE = 48;
+
+  static final int TIMESTAMP_OFFSET = 0;
+  static final int GAME_ID_OFFSET = 8;
+  static final int MOVE_COUNT_OFFSET = 24;
+  static final int TYPE_OFFSET = 28;
+  static final int PLAYER_OFFSET = 29;
+  static final int PIT_OFFSET = 30;
+  static final int VALUE_OFFSET = 31;
+  static final int SOUTH_PITS_OFFSET = 32;
+  static final int NORTH_PITS_OFFSET = SOUTH_PITS_OFFSET + GameBoard.TOTAL_PITS_EACH;
+
+  static final byte NONE = -1;
+
+  private long timestamp;
+  private String gameId;
+  private int moveCount;
+  private GameEventType type;
+  private GameBoard.PlayerPosition player;
+  private Integer pitId;
+  private int value;
+  private int[] southPits;
+  private int[] northPits;
+
+  private GameEvent() {
+  }
+
+  /**
+   * Reads the event record at the given offset of the given buffer.
+   *
+   * @param buffer the buffer
+   * @param offset the offset of the record
+   * @return the event
+   */
+  public static GameEvent read(final ByteBuffer buffer, final int offset) {
+    final GameEvent gameEvent = new GameEvent();
+
+    gameEvent.timestamp = buffer.getLong(offset + TIMESTAMP_OFFSET);
+    gameEvent.gameId = new UUID(buffer.getLong(offset + GAME_ID_OFFSET), buffer.getLong(offset + GAME_ID_OFFSET + 8))
+        .toString();
+    gameEvent.moveCount = buffer.getInt(offset + MOVE_COUNT_OFFSET);
+    gameEvent.type = GameEventType.fromCode(buffer.get(offset + TYPE_OFFSET));
+
+    final byte player = buffer.get(offset + PLAYER_OFFSET);
+    gameEvent.player = player == NONE ? null : GameBoard.PlayerPosition.values()[player];
+
+    final byte pitId = buffer.get(offset + PIT_OFFSET);
+    gameEvent.pitId = pitId == NONE ? null : (int) pitId;
+
+    gameEvent.value = buffer.get(offset + VALUE_OFFSET);
+
+    gameEvent.southPits = new int[GameBoard.TOTAL_PITS_EACH];
+    gameEvent.northPits = new int[GameBoard.TOTAL_PITS_EACH];
+    for (int i = 0; i < GameBoard.TOTAL_PITS_EACH; i++) {
+      gameEvent.southPits[i] = buffer.get(offset + SOUTH_PITS_OFFSET + i);
+      gameEvent.northPits[i] = buffer.get(offset + NORTH_PITS_OFFSET + i);
+    }
+
+    return gameEvent;
+  }
+
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  public String getGameId() {
+    return gameId;
+  }
+
+  public int getMoveCount() {
+    return moveCount;
+  }
+
+  public GameEventType getType() {
+    return type;
+  }
+
+  public GameBoard.PlayerPosition getPlayer() {
+    return player;
+  }
+
+  public Integer getPitId() {
+    return pitId;
+  }
+
+  public int getValue() {
+    return value;
+  }
+
+  public int[] getSouthPits() {
+    return southPits;
+  }
+
+  public int[] getNorthPits() {
+    return northPits;
+  }
+}
@@ -0,0 +1,502 @@
+package com.lannen.kalah.events;
+
+import com.lannen.kalah.domain.GameBoard;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.PreDestroy;
+
+/**
+ * An audit log of game events (games created, joined, moves played, captures, game over, etc.), kept off the request
+ * threads.
+ *
+ * Recording an event just claims the next slot of a preallocated ring buffer and writes a fixed layout binary record
+ * (see GameEvent) into it; there is no string building or I/O on the request thread. A single background writer thread
+ * drains the published records, in order, to rolling files in the event log directory.
+ *
+ * Events are recorded in two steps, so that nothing is ever waited on while holding a game board's lock: capture, while
+ * holding the lock, copies the event's fields and claims its place in the log (so the events of each game are written
+ * in the order they happened), then record, once the lock has been released, writes it into the ring buffer. If the
+ * writer falls a whole buffer behind, events are either dropped and counted, or recording waits for the writer to
+ * catch up, depending on the FullBufferPolicy.
+ *
+ * The writer logs a warning with the running totals whenever events have been dropped, or lost to an I/O error, at
+ * most once every 10 seconds, so gaps in the log are never silent. The totals are also given by GET
+ * /admin/events/stats.
+ *
+ * The files can be converted to JSON with GameEventLogReader.
+ */
+@Component
+public class GameEventLog {
+  private static final Logger LOG = LoggerFactory.getLogger(GameEventLog.class);
+
+  public static final int DEFAULT_CAPACITY = 65536;
+  public static final long DEFAULT_MAX_FILE_BYTES = 64L * 1024 * 1024;
+
+  static final int FILE_MAGIC = 0x4B4C4556; // "KLEV"
+  static final int FILE_VERSION = 1;
+  static final int FILE_HEADER_SIZE = 8;
+  static final String FILE_PREFIX = "game-events-";
+  static final String FILE_SUFFIX = ".bin";
+
+  /**
+   * What to do when an event is captured while the ring buffer is full.
+   */
+  public enum FullBufferPolicy {
+    /**
+     * Drop the event, counting it in getEventsDropped.
+     */
+    DROP,
+    /**
+     * Wait for the writer to make space, when the event is recorded.
+     */
+    BLOCK
+  }
+
+  private static final long MIN_IDLE_PARK_NANOS = 1_000_000;
+  private static final long MAX_IDLE_PARK_NANOS = 100_000_000;
+  private static final long FULL_PARK_NANOS = 10_000;
+  private static final long LOSS_REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  private final Path directory;
+  private final int capacity;
+  private final int mask;
+  private final long maxFileBytes;
+  private final FullBufferPolicy fullBufferPolicy;
+
+  private final ByteBuffer buffer;
+  private final AtomicLongArray published;
+  private final AtomicLong claimed = new AtomicLong();
+  private volatile long consumed;
+
+  private final LongAdder eventsWritten = new LongAdder();
+  private final LongAdder eventsLost = new LongAdder();
+  private final LongAdder eventsDropped = new LongAdder();
+
+  private final Thread writer;
+  private volatile boolean running;
+
+  // Only accessed by the writer thread
+  private FileChannel file;
+  private long fileBytes;
+  private int fileIndex;
+  private long lastLossReport = System.nanoTime() - LOSS_REPORT_INTERVAL_NANOS;
+  private long droppedReported;
+  private long lostReported;
+  private IOException writeError;
+
+  /**
+   * @param directory the directory to write the event log files to. If empty, events are not recorded.
+   * @param fullBufferPolicy what to do when the ring buffer is full
+   */
+  @Autowired
+  public GameEventLog(@Value("${kalah.events.directory:events}") String directory,
+      @Value("${kalah.events.whenFull:DROP}") FullBufferPolicy fullBufferPolicy) {
+    this(directory, DEFAULT_CAPACITY, DEFAULT_MAX_FILE_BYTES, fullBufferPolicy);
+  }
+
+  /**
+   * @param directory the directory to write the event log files to. If empty, events are not recorded.
+   * @param capacity the number of events the ring buffer can hold, rounded up to a power of two
+   * @param maxFileBytes the size at which to roll over to a new file
+   * @param fullBufferPolicy what to do when the ring buffer is full
+   */
+  public GameEventLog(String directory, int capacity, long maxFileBytes, FullBufferPolicy fullBufferPolicy) {
+    int size = 1;
+    while (size < capacity) {
+      size <<= 1;
+    }
+
+    this.capacity = size;
+    this.mask = size - 1;
+    this.maxFileBytes = Math.max(maxFileBytes, FILE_HEADER_SIZE + GameEvent.RECORD_SIZE);
+    this.fullBufferPolicy = fullBufferPolicy;
+
+    if (StringUtils.isEmpty(directory)) {
+      this.directory = null;
+      this.buffer = null;
+      this.published = null;
+      this.writer = null;
+      return;
+    }
+
+    this.directory = Paths.get(directory);
+    this.buffer = ByteBuffer.allocate(size * GameEvent.RECORD_SIZE);
+    this.published = new AtomicLongArray(size);
+
+    try {
+      Files.createDirectories(this.directory);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to create game event log directory: " + directory, e);
+    }
+
+    running = true;
+    writer = new Thread(this::drain, "game-event-writer");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  /**
+   * @return a game event log that does not record anything
+   */
+  public static GameEventLog disabled() {
+    return new GameEventLog("", 1, 0, FullBufferPolicy.DROP);
+  }
+
+  /**
+   * Records a game event, along with the current state of the given game board. Must not be called holding the game
+   * board's lock: use capture instead, and record the captured event once the lock has been released.
+   *
+   * @param type the event type
+   * @param gameBoard the game board
+   * @param player the player position, or null if none
+   * @param pitId the pit id, or -1 if none
+   * @param value the value
+   */
+  public void record(final GameEventType type, final GameBoard gameBoard, final GameBoard.PlayerPosition player,
+      final int pitId, final int value) {
+    record(capture(type, gameBoard, player, pitId, value));
+  }
+
+  /**
+   * Captures a game event, along with the current state of the given game board, and claims its place in the log. Must
+   * be called holding the game board's lock, and the event must then be recorded once the lock has been released, as
+   * the writer cannot get past an event that has been captured until it has been recorded.
+   *
+   * @param type the event type
+   * @param gameBoard the game board
+   * @param player the player position, or null if none
+   * @param pitId the pit id, or -1 if none
+   * @param value the value
+   *
+   * @return the captured event, or null if events are not being recorded, or the event was dropped because the ring
+   * buffer is full
+   */
+  public CapturedEvent capture(final GameEventType type, final GameBoard gameBoard,
+      final GameBoard.PlayerPosition player, final int pitId, final int value) {
+    if (!running) {
+      return null;
+    }
+
+    final long sequence = claim();
+
+    if (sequence < 0) {
+      eventsDropped.increment();
+      return null;
+    }
+
+    return new CapturedEvent(sequence, type, gameBoard, player, pitId, value);
+  }
+
+  /**
+   * Records the given captured events, in order. Must not be called holding a game board's lock.
+   *
+   * @param capturedEvents the captured events, any of which may be null
+   */
+  public void record(final Iterable<CapturedEvent> capturedEvents) {
+    for (CapturedEvent capturedEvent : capturedEvents) {
+      record(capturedEvent);
+    }
+  }
+
+  /**
+   * Records a captured event. Must not be called holding a game board's lock.
+   *
+   * @param capturedEvent the captured event, or null to do nothing
+   */
+  public void record(final CapturedEvent capturedEvent) {
+    if (capturedEvent == null) {
+      return;
+    }
+
+    final long sequence = capturedEvent.sequence;
+
+    // With the BLOCK policy, wait for the writer if it is a whole buffer behind (with DROP, claim made sure it isn't)
+    while (sequence - capacity >= consumed) {
+      LockSupport.parkNanos(FULL_PARK_NANOS);
+    }
+
+    final int slot = (int) (sequence & mask);
+    final int offset = slot * GameEvent.RECORD_SIZE;
+
+    buffer.putLong(offset + GameEvent.TIMESTAMP_OFFSET, capturedEvent.timestamp);
+    buffer.putLong(offset + GameEvent.GAME_ID_OFFSET, capturedEvent.gameIdMostSignificantBits);
+    buffer.putLong(offset + GameEvent.GAME_ID_OFFSET + 8, capturedEvent.gameIdLeastSignificantBits);
+    buffer.putInt(offset + GameEvent.MOVE_COUNT_OFFSET, capturedEvent.moveCount);
+    buffer.put(offset + GameEvent.TYPE_OFFSET, capturedEvent.type);
+    buffer.put(offset + GameEvent.PLAYER_OFFSET, capturedEvent.player);
+    buffer.put(offset + GameEvent.PIT_OFFSET, capturedEvent.pitId);
+    buffer.put(offset + GameEvent.VALUE_OFFSET, capturedEvent.value);
+
+    for (int i = 0; i < GameBoard.TOTAL_PITS_EACH; i++) {
+      buffer.put(offset + GameEvent.SOUTH_PITS_OFFSET + i, (byte) (capturedEvent.southPits >>> (i * Byte.SIZE)));
+      buffer.put(offset + GameEvent.NORTH_PITS_OFFSET + i, (byte) (capturedEvent.northPits >>> (i * Byte.SIZE)));
+    }
+
+    // Publish the record to the writer (the sequence is stored plus one, so an unused slot is never published)
+    published.lazySet(slot, sequence + 1);
+  }
+
+  /**
+   * Claims the next sequence in the log.
+   *
+   * @return the sequence, or -1 if the ring buffer is full and events are being dropped
+   */
+  private long claim() {
+    if (fullBufferPolicy == FullBufferPolicy.BLOCK) {
+      return claimed.getAndIncrement();
+    }
+
+    while (true) {
+      final long sequence = claimed.get();
+
+      if (sequence - capacity >= consumed) {
+        return -1;
+      }
+
+      if (claimed.compareAndSet(sequence, sequence + 1)) {
+        return sequence;
+      }
+    }
+  }
+
+  /**
+   * @return the number of events written to the log files
+   */
+  public long getEventsWritten() {
+    return eventsWritten.sum();
+  }
+
+  /**
+   * @return the number of events that could not be written to the log files due to an I/O error
+   */
+  public long getEventsLost() {
+    return eventsLost.sum();
+  }
+
+  /**
+   * @return the number of events dropped because the ring buffer was full
+   */
+  public long getEventsDropped() {
+    return eventsDropped.sum();
+  }
+
+  /**
+   * Stops recording events, waiting for the writer to write the events already recorded and close the current file.
+   */
+  @PreDestroy
+  public void close() {
+    if (!running) {
+      return;
+    }
+
+    running = false;
+    LockSupport.unpark(writer);
+
+    try {
+      writer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void drain() {
+    final ByteBuffer view = buffer.duplicate();
+    long idleParkNanos = MIN_IDLE_PARK_NANOS;
+
+    while (true) {
+      reportLosses(false);
+
+      final long next = consumed;
+      int count = 0;
+
+      while (count < capacity && published.get((int) ((next + count) & mask)) == next + count + 1) {
+        count++;
+      }
+
+      if (count == 0) {
+        // Stop once everything claimed before recording was stopped has been written
+        if (!running && claimed.get() == next) {
+          break;
+        }
+
+        // Back off while there is nothing to write, so an idle log does not keep waking the writer
+        LockSupport.parkNanos(this, idleParkNanos);
+        idleParkNanos = Math.min(idleParkNanos * 2, MAX_IDLE_PARK_NANOS);
+        continue;
+      }
+
+      idleParkNanos = MIN_IDLE_PARK_NANOS;
+      write(view, next, count);
+      consumed = next + count;
+    }
+
+    reportLosses(true);
+    closeFile();
+  }
+
+  /**
+   * Logs a warning with the running totals if any events have been dropped or lost since the last warning. Unless
+   * forced, warns at most once every LOSS_REPORT_INTERVAL_NANOS, so a full buffer or a failing disk does not flood the
+   * log.
+   *
+   * @param force whether to warn even if the interval has not passed
+   */
+  private void reportLosses(final boolean force) {
+    final long now = System.nanoTime();
+
+    if (!force && now - lastLossReport < LOSS_REPORT_INTERVAL_NANOS) {
+      return;
+    }
+
+    final long dropped = eventsDropped.sum();
+    final long lost = eventsLost.sum();
+
+    if (dropped == droppedReported && lost == lostReported) {
+      return;
+    }
+
+    LOG.warn("Game events missing from the log: dropped: {} (total: {}), lost to I/O errors: {} (total: {})",
+        dropped - droppedReported, dropped, lost - lostReported, lost, writeError);
+
+    lastLossReport = now;
+    droppedReported = dropped;
+    lostReported = lost;
+    writeError = null;
+  }
+
+  private void write(final ByteBuffer view, final long sequence, final int count) {
+    int written = 0;
+
+    try {
+      while (written < count) {
+        final int slot = (int) ((sequence + written) & mask);
+        final int toEndOfFile = (int) ((maxFileBytes - fileBytes) / GameEvent.RECORD_SIZE);
+
+        if (file == null || toEndOfFile == 0) {
+          rollFile();
+          continue;
+        }
+
+        // Write up to the end of the ring buffer or the file, whichever comes first
+        final int batch = Math.min(Math.min(count - written, capacity - slot), toEndOfFile);
+
+        view.limit((slot + batch) * GameEvent.RECORD_SIZE);
+        view.position(slot * GameEvent.RECORD_SIZE);
+
+        while (view.hasRemaining()) {
+          file.write(view);
+        }
+
+        fileBytes += batch * GameEvent.RECORD_SIZE;
+        written += batch;
+        eventsWritten.add(batch);
+      }
+    } catch (IOException e) {
+      // Reported by reportLosses
+      eventsLost.add(count - written);
+      writeError = e;
+      closeFile();
+    }
+  }
+
+  private void rollFile() throws IOException {
+    closeFile();
+
+    final String fileName = String.format("%s%2$tY%2$tm%2$td-%2$tH%2$tM%2$tS-%3$04d%4$s", FILE_PREFIX, new Date(),
+        fileIndex++, FILE_SUFFIX);
+
+    file = FileChannel.open(directory.resolve(fileName), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+
+    final ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+    header.putInt(FILE_MAGIC).putInt(FILE_VERSION).flip();
+
+    while (header.hasRemaining()) {
+      file.write(header);
+    }
+
+    fileBytes = FILE_HEADER_SIZE;
+  }
+
+  private void closeFile() {
+    if (file == null) {
+      return;
+    }
+
+    try {
+      file.force(false);
+      file.close();
+    } catch (IOException e) {
+      LOG.error("Unable to close game event log file", e);
+    }
+
+    file = null;
+  }
+
+  /**
+   * A game event captured while holding its game board's lock, with its place in the log claimed, waiting to be
+   * recorded.
+   */
+  public static final class CapturedEvent {
+    private final long sequence;
+    private final long timestamp;
+    private final long gameIdMostSignificantBits;
+    private final long gameIdLeastSignificantBits;
+    private final int moveCount;
+    private final byte type;
+    private final byte player;
+    private final byte pitId;
+    private final byte value;
+    // The pits, one per byte, so capturing does not copy the arrays
+    private final long southPits;
+    private final long northPits;
+
+    private CapturedEvent(final long sequence, final GameEventType type, final GameBoard gameBoard,
+        final GameBoard.PlayerPosition player, final int pitId, final int value) {
+      final UUID gameUuid = gameBoard.getGameUuid();
+
+      this.sequence = sequence;
+      this.timestamp = System.currentTimeMillis();
+      this.gameIdMostSignificantBits = gameUuid.getMostSignificantBits();
+      this.gameIdLeastSignificantBits = gameUuid.getLeastSignificantBits();
+      this.moveCount = gameBoard.getMoveCount();
+      this.type = type.getCode();
+      this.player = player == null ? GameEvent.NONE : (byte) player.ordinal();
+      this.pitId = (byte) pitId;
+      this.value = (byte) value;
+      this.southPits = pack(gameBoard.getSouthPits());
+      this.northPits = pack(gameBoard.getNorthPits());
+    }
+
+    private static long pack(final int[] pits) {
+      long packed = 0;
+
+      for (int i = 0; i < GameBoard.TOTAL_PITS_EACH; i++) {
+        packed |= (pits[i] & 0xFFL) << (i * Byte.SIZE);
+      }
+
+      return packed;
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package com.lannen.kalah.events;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Converts game event log files to JSON, one event per line.
+ *
+ * Usage: GameEventLogReader &lt;file or directory&gt;...
+ *
+ * Directories are expanded to the event log files they contain, in the order they were written. The JSON is written to
+ * standard output.
+ */
+public class GameEventLogReader {
+
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      System.err.println("Usage: GameEventLogReader <file or directory>...");
+      System.exit(1);
+    }
+
+    final List<Path> files = new ArrayList<>();
+    for (String arg : args) {
+      files.addAll(listFiles(Paths.get(arg)));
+    }
+
+    final ObjectMapper objectMapper = new ObjectMapper().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    final Writer out = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+
+    try (SequenceWriter sequenceWriter = objectMapper.writer().withRootValueSeparator("\n").writeValues(out)) {
+      for (Path file : files) {
+        read(file, gameEvent -> {
+          try {
+            sequenceWriter.write(gameEvent);
+          } catch (IOException e) {
+            throw new IllegalStateException(e);
+          }
+        });
+      }
+    }
+
+    out.write('\n');
+    out.flush();
+  }
+
+  /**
+   * Lists the event log files at the given path: either the path itself if it is a file, or the event log files in it,
+   * in the order they were written, if it is a directory.
+   *
+   * @param path the file or directory
+   * @return the event log files
+   */
+  public static List<Path> listFiles(final Path path) throws IOException {
+    if (!Files.isDirectory(path)) {
+      return Collections.singletonList(path);
+    }
+
+    final List<Path> files = new ArrayList<>();
+    final String glob = GameEventLog.FILE_PREFIX + "*" + GameEventLog.FILE_SUFFIX;
+
+    try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(path, glob)) {
+      directoryStream.forEach(files::add);
+    }
+
+    // The file names start with the time they were created, so sort into the order they were written
+    Collections.sort(files);
+    return files;
+  }
+
+  /**
+   * Reads the events from an event log file. A partially written record at the end of the file is ignored.
+   *
+   * @param file the event log file
+   * @param consumer called with each event, in the order they were written
+   * @throws IOException if the file cannot be read or is not an event log file
+   */
+  public static void read(final Path file, final Consumer<GameEvent> consumer) throws IOException {
+    final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+
+    if (buffer.remaining() < GameEventLog.FILE_HEADER_SIZE || buffer.getInt(0) != GameEventLog.FILE_MAGIC) {
+      throw new IOException("Not a game event log file: " + file);
+    }
+
+    if (buffer.getInt(4) != GameEventLog.FILE_VERSION) {
+      throw new IOException("Unsupported game event log version: " + buffer.getInt(4) + ": " + file);
+    }
+
+    for (int offset = GameEventLog.FILE_HEADER_SIZE; offset + GameEvent.RECORD_SIZE <= buffer.limit();
+        offset += GameEvent.RECORD_SIZE) {
+      consumer.accept(GameEvent.read(buffer, offset));
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package com.lannen.kalah.events;
+
+/**
+ * The types of game event recorded in the game event log. The code of each type is what is written to the log, so
+ * existing codes must never be changed or reused.
+ */
+public enum GameEventType {
+  /**
+   * A new game was started. The player is the position of the player who started it.
+   */
+  CREATED(1),
+
+  /**
+   * A second player joined the game. The player is their position.
+   */
+  JOINED(2),
+
+  /**
+   * A move was played. The player is the position of the player who moved (or had a move played for them), and the pit
+   * is the pit they chose.
+   */
+  MOVED(3),
+
+  /**
+   * A move ended in an empty pit, capturing the stones in the opponent's opposite pit. The player is the position of
+   * the capturing player, the pit is the pit the move ended in, and the value is the number of stones moved to their
+   * kalah (including the capturing stone).
+   */
+  CAPTURED(4),
+
+  /**
+   * The game is over. The player is the position of the winner, or none for a tie.
+   */
+  GAME_OVER(5),
+
+  /**
+   * The next player ran out of time to move. The player is their position, and the value is the ordinal of the
+   * GameSettings.TimeoutAction that was taken.
+   */
+  TIMED_OUT(6),
+
+  /**
+   * No second player joined the game before its join timeout, so it was removed.
+   */
+  EXPIRED(7),
+
+  /**
+   * The game was removed by an administrator purging stale games.
+   */
+  PURGED(8);
+
+  private static final GameEventType[] BY_CODE = new GameEventType[9];
+
+  static {
+    for (GameEventType type : values()) {
+      BY_CODE[type.code] = type;
+    }
+  }
+
+  private final byte code;
+
+  GameEventType(int code) {
+    this.code = (byte) code;
+  }
+
+  public byte getCode() {
+    return code;
+  }
+
+  /**
+   * @param code the code written to the log
+   * @return the event type with the given code
+   * @throws IllegalArgumentException if there is no event type with the given code
+   */
+  public static GameEventType fromCode(byte code) {
+    if (code <= 0 || code >= BY_CODE.length || BY_CODE[code] == null) {
+      throw new IllegalArgumentException("Unknown game event type code: " + code);
+    }
+
+    return BY_CODE[code];
+  }
+}
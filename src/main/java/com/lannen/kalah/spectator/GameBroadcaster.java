@@ -0,0 +1,446 @@
+package com.lannen.kalah.spectator;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lannen.kalah.domain.GameBoard;
+import com.lannen.kalah.domain.GameUpdate;
+import com.lannen.kalah.domain.SpectatorStats;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PreDestroy;
+
+/**
+ * Fans out game board updates to the spectators watching a game.
+ *
+ * Each update is serialized once, into a single immutable TextMessage which is then handed to every subscriber of the
+ * game. Subscribers are written to from a separate pool of threads, so a slow spectator can never hold up the player
+ * whose move produced the update.
+ *
+ * As every update carries the whole board, a subscriber only ever needs the latest one. Each subscriber therefore has a
+ * queue bounded to a single pending update: if a newer update arrives before the pending one has been sent, the pending
+ * one is dropped and replaced.
+ *
+ * Sends are blocking, so a spectator that stops reading holds a sender thread until its send times out. To keep such
+ * spectators from holding up everyone else, a watchdog drops any spectator whose send has taken longer than the send
+ * time limit, and adds a spare sender thread to the pool for as long as the stalled send is still blocked. Once the
+ * send returns, the stalled spectator's session is closed and the spare thread removed.
+ */
+@Component
+public class GameBroadcaster {
+  private static final Logger LOG = LoggerFactory.getLogger(GameBroadcaster.class);
+
+  public static final long DEFAULT_SEND_TIME_LIMIT_MILLIS = 5000;
+
+  /**
+   * The most spare sender threads that will be added for stalled sends. Beyond this, stalled spectators are still
+   * dropped, but hold up the pool until their sends time out.
+   */
+  private static final int MAX_SPARE_SENDERS = 256;
+  private static final long MIN_WATCHDOG_PERIOD_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  private final ObjectMapper objectMapper;
+  private final int senderThreads;
+  private final long sendTimeLimitNanos;
+  private final ThreadPoolExecutor senders;
+  private final ScheduledExecutorService watchdog;
+
+  private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+  private final Set<Subscriber> sending = ConcurrentHashMap.newKeySet();
+  private int stalledSends; // guarded by senders
+
+  public GameBroadcaster() {
+    this(new ObjectMapper());
+  }
+
+  public GameBroadcaster(ObjectMapper objectMapper) {
+    this(objectMapper, DEFAULT_SEND_TIME_LIMIT_MILLIS);
+  }
+
+  /**
+   * @param objectMapper the object mapper used to serialize the updates
+   * @param sendTimeLimitMillis how long a send to a spectator can take before they are dropped
+   */
+  @Autowired
+  public GameBroadcaster(ObjectMapper objectMapper,
+      @Value("${kalah.spectators.sendTimeLimitMillis:5000}") long sendTimeLimitMillis) {
+    this(objectMapper, Runtime.getRuntime().availableProcessors(), sendTimeLimitMillis);
+  }
+
+  /**
+   * @param objectMapper the object mapper used to serialize the updates
+   * @param senderThreads the number of sender threads
+   * @param sendTimeLimitMillis how long a send to a spectator can take before they are dropped
+   */
+  public GameBroadcaster(ObjectMapper objectMapper, int senderThreads, long sendTimeLimitMillis) {
+    if (senderThreads <= 0 || sendTimeLimitMillis <= 0) {
+      throw new IllegalArgumentException("senderThreads and sendTimeLimitMillis must be greater than 0");
+    }
+
+    this.objectMapper = objectMapper;
+    this.senderThreads = senderThreads;
+    this.sendTimeLimitNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeLimitMillis);
+
+    this.senders = new ThreadPoolExecutor(senderThreads, senderThreads, 60, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(), runnable -> daemonThread(runnable, "spectator-sender"));
+    this.watchdog
+        = Executors.newSingleThreadScheduledExecutor(runnable -> daemonThread(runnable, "spectator-watchdog"));
+
+    final long watchdogPeriodNanos = Math.max(sendTimeLimitNanos / 4, MIN_WATCHDOG_PERIOD_NANOS);
+    watchdog.scheduleWithFixedDelay(this::dropStalledSubscribers, watchdogPeriodNanos, watchdogPeriodNanos,
+        TimeUnit.NANOSECONDS);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    watchdog.shutdownNow();
+    senders.shutdownNow();
+  }
+
+  /**
+   * Makes a newly created game available to be watched.
+   *
+   * @param gameBoard the game board
+   */
+  public void register(final GameBoard gameBoard) {
+    channels.put(gameBoard.getGameId(), new Channel(gameBoard));
+  }
+
+  /**
+   * Stops broadcasting the game with the given id, closing the sessions of any spectators still watching it.
+   *
+   * @param gameId the id of the game
+   */
+  public void remove(final String gameId) {
+    final Channel channel = channels.remove(gameId);
+
+    if (channel != null) {
+      for (Subscriber subscriber : channel.subscribers.values()) {
+        subscriber.close(CloseStatus.GOING_AWAY);
+      }
+    }
+  }
+
+  /**
+   * Publishes the current state of the given game board to its spectators. Does nothing (and serializes nothing) if the
+   * game is not being watched.
+   *
+   * @param gameBoard the updated game board
+   */
+  public void publish(final GameBoard gameBoard) {
+    final Channel channel = channels.get(gameBoard.getGameId());
+
+    if (channel == null || channel.subscribers.isEmpty()) {
+      return;
+    }
+
+    final long version = channel.version.incrementAndGet();
+    final Frame frame = channel.serialize(version);
+
+    if (frame == null) {
+      return;
+    }
+
+    channel.updatesPublished.increment();
+
+    for (Subscriber subscriber : channel.subscribers.values()) {
+      subscriber.offer(frame);
+    }
+  }
+
+  /**
+   * Adds the given session as a spectator of a game, and sends it the current state of the game board.
+   *
+   * @param gameId the id of the game to watch
+   * @param session the spectator's session
+   *
+   * @return true if subscribed, false if there is no game with the given id
+   */
+  public boolean subscribe(final String gameId, final WebSocketSession session) {
+    final Channel channel = channels.get(gameId);
+
+    if (channel == null) {
+      return false;
+    }
+
+    final Subscriber subscriber = new Subscriber(channel, session);
+    channel.subscribers.put(session.getId(), subscriber);
+
+    // The game may have been removed since the channel was looked up, in which case remove has already closed the
+    // sessions it found, and may have missed this one
+    if (channels.get(gameId) != channel) {
+      channel.subscribers.remove(session.getId());
+      return false;
+    }
+
+    final Frame snapshot = channel.serialize(channel.version.get());
+
+    if (snapshot != null) {
+      subscriber.offer(snapshot);
+    }
+
+    return true;
+  }
+
+  /**
+   * Removes the given session as a spectator of a game.
+   *
+   * @param gameId the id of the game being watched
+   * @param session the spectator's session
+   */
+  public void unsubscribe(final String gameId, final WebSocketSession session) {
+    final Channel channel = channels.get(gameId);
+
+    if (channel != null) {
+      channel.subscribers.remove(session.getId());
+    }
+  }
+
+  /**
+   * Gets the spectator statistics for a game.
+   *
+   * @param gameId the id of the game
+   *
+   * @return the statistics, or null if there is no game with the given id
+   */
+  public SpectatorStats getStats(final String gameId) {
+    final Channel channel = channels.get(gameId);
+
+    if (channel == null) {
+      return null;
+    }
+
+    final long sends = channel.sends.sum();
+    final long averageFanOutNanos = sends == 0 ? 0 : channel.fanOutNanos.sum() / sends;
+
+    return new SpectatorStats(channel.subscribers.size(), channel.updatesPublished.sum(), channel.updatesDropped.sum(),
+        averageFanOutNanos / 1000, channel.maxFanOutNanos.get() / 1000);
+  }
+
+  /**
+   * Drops the subscribers whose current send has taken longer than the send time limit, adding a spare sender thread
+   * for each one while it is still blocked. Run periodically by the watchdog.
+   */
+  private void dropStalledSubscribers() {
+    final long now = System.nanoTime();
+
+    for (Subscriber subscriber : sending) {
+      if (subscriber.state.get() != Subscriber.SENDING || now - subscriber.sendStartedNanos <= sendTimeLimitNanos) {
+        continue;
+      }
+
+      if (subscriber.state.compareAndSet(Subscriber.SENDING, Subscriber.STALLED)) {
+        LOG.debug("Dropping stalled spectator: sessionId: {}", subscriber.session.getId());
+        subscriber.channel.subscribers.remove(subscriber.session.getId(), subscriber);
+        resizeSenders(1);
+      }
+    }
+  }
+
+  /**
+   * Adds or removes a spare sender thread, for a send that has stalled or a stalled send that has returned.
+   */
+  private void resizeSenders(final int stalledSendsDelta) {
+    synchronized (senders) {
+      stalledSends += stalledSendsDelta;
+      final int poolSize = senderThreads + Math.min(stalledSends, MAX_SPARE_SENDERS);
+
+      // The maximum can never be less than the core size, so grow the maximum first and shrink it last
+      if (poolSize > senders.getMaximumPoolSize()) {
+        senders.setMaximumPoolSize(poolSize);
+        senders.setCorePoolSize(poolSize);
+      } else {
+        senders.setCorePoolSize(poolSize);
+        senders.setMaximumPoolSize(poolSize);
+      }
+    }
+  }
+
+  private static Thread daemonThread(final Runnable runnable, final String name) {
+    final Thread thread = new Thread(runnable, name);
+    thread.setDaemon(true);
+    return thread;
+  }
+
+  /**
+   * An update ready to be sent, along with its position in the game's sequence of updates and when it was published.
+   */
+  private static final class Frame {
+    final TextMessage message;
+    final long version;
+    final long publishedNanos;
+
+    Frame(final TextMessage message, final long version, final long publishedNanos) {
+      this.message = message;
+      this.version = version;
+      this.publishedNanos = publishedNanos;
+    }
+  }
+
+  /**
+   * The subscribers and statistics for a single game.
+   */
+  private final class Channel {
+    final GameBoard gameBoard;
+    final Map<String, Subscriber> subscribers = new ConcurrentHashMap<>();
+    final AtomicLong version = new AtomicLong();
+
+    final LongAdder updatesPublished = new LongAdder();
+    final LongAdder updatesDropped = new LongAdder();
+    final LongAdder sends = new LongAdder();
+    final LongAdder fanOutNanos = new LongAdder();
+    final LongAccumulator maxFanOutNanos = new LongAccumulator(Math::max, 0);
+
+    Channel(final GameBoard gameBoard) {
+      this.gameBoard = gameBoard;
+    }
+
+    Frame serialize(final long version) {
+      final long publishedNanos = System.nanoTime();
+
+      try {
+        final GameUpdate gameUpdate;
+        synchronized (gameBoard) {
+          gameUpdate = new GameUpdate(gameBoard);
+        }
+
+        final byte[] payload = objectMapper.writeValueAsBytes(gameUpdate);
+        return new Frame(new TextMessage(payload), version, publishedNanos);
+      } catch (JsonProcessingException e) {
+        LOG.error("Unable to serialize game update: gameId: {}", gameBoard.getGameId(), e);
+        return null;
+      }
+    }
+
+    void recordSend(final Frame frame) {
+      final long latency = System.nanoTime() - frame.publishedNanos;
+      sends.increment();
+      fanOutNanos.add(latency);
+      maxFanOutNanos.accumulate(latency);
+    }
+  }
+
+  /**
+   * A single spectator. Holds at most one pending update, and has at most one sender thread writing to its session at a
+   * time (WebSocketSession.sendMessage must not be called concurrently).
+   */
+  private final class Subscriber implements Runnable {
+    static final int IDLE = 0;
+    static final int SENDING = 1;
+    static final int STALLED = 2;
+
+    final Channel channel;
+    final WebSocketSession session;
+
+    final AtomicReference<Frame> pending = new AtomicReference<>();
+    final AtomicBoolean scheduled = new AtomicBoolean();
+    final AtomicInteger state = new AtomicInteger(IDLE);
+    volatile long sendStartedNanos;
+    volatile long lastSentVersion = -1;
+
+    Subscriber(final Channel channel, final WebSocketSession session) {
+      this.channel = channel;
+      this.session = session;
+    }
+
+    void offer(final Frame frame) {
+      while (true) {
+        final Frame current = pending.get();
+
+        if (frame.version <= lastSentVersion || (current != null && current.version >= frame.version)) {
+          return;
+        }
+
+        if (pending.compareAndSet(current, frame)) {
+          if (current != null) {
+            channel.updatesDropped.increment();
+          }
+          break;
+        }
+      }
+
+      if (scheduled.compareAndSet(false, true)) {
+        senders.execute(this);
+      }
+    }
+
+    @Override
+    public void run() {
+      while (true) {
+        final Frame frame = pending.getAndSet(null);
+
+        if (frame == null) {
+          scheduled.set(false);
+
+          // An update may have been offered after the getAndSet but before scheduled was cleared
+          if (pending.get() != null && scheduled.compareAndSet(false, true)) {
+            continue;
+          }
+
+          return;
+        }
+
+        sendStartedNanos = System.nanoTime();
+        state.set(SENDING);
+        sending.add(this);
+
+        boolean sent = false;
+        try {
+          session.sendMessage(frame.message);
+          sent = true;
+        } catch (IOException | RuntimeException e) {
+          LOG.debug("Dropping spectator: sessionId: {}", session.getId(), e);
+        } finally {
+          sending.remove(this);
+        }
+
+        if (!state.compareAndSet(SENDING, IDLE)) {
+          // The watchdog dropped this subscriber while the send was blocked, so give back the spare thread it added
+          resizeSenders(-1);
+          close(CloseStatus.SESSION_NOT_RELIABLE);
+          return;
+        }
+
+        if (!sent) {
+          channel.subscribers.remove(session.getId(), this);
+          close(CloseStatus.SESSION_NOT_RELIABLE);
+          return;
+        }
+
+        lastSentVersion = frame.version;
+        channel.recordSend(frame);
+      }
+    }
+
+    void close(final CloseStatus closeStatus) {
+      try {
+        session.close(closeStatus);
+      } catch (IOException e) {
+        LOG.debug("Unable to close spectator session: sessionId: {}", session.getId(), e);
+      }
+    }
+  }
+}
@@ -0,0 +1,24 @@
+package com.lannen.kalah.spectator;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+/**
+ * Registers the spectator WebSocket at /game/{gameId}/watch. As spectators can only read the game, connections are
+ * accepted from any origin.
+ */
+@Configuration
+@EnableWebSocket
+public class SpectatorConfig implements WebSocketConfigurer {
+
+  @Autowired
+  private SpectatorWebSocketHandler spectatorWebSocketHandler;
+
+  @Override
+  public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+    registry.addHandler(spectatorWebSocketHandler, SpectatorWebSocketHandler.WATCH_PATH).setAllowedOrigins("*");
+  }
+}
@@ -0,0 +1,57 @@
+package com.lannen.kalah.spectator;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+/**
+ * Handles the WebSocket sessions of spectators watching a game at /game/{gameId}/watch. Spectators are read-only, so
+ * any messages they send are ignored.
+ */
+@Component
+public class SpectatorWebSocketHandler extends TextWebSocketHandler {
+  static final String WATCH_PATH = "/game/*/watch";
+
+  private static final String GAME_ID_ATTRIBUTE = "gameId";
+
+  private final GameBroadcaster gameBroadcaster;
+
+  @Autowired
+  public SpectatorWebSocketHandler(GameBroadcaster gameBroadcaster) {
+    this.gameBroadcaster = gameBroadcaster;
+  }
+
+  @Override
+  public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+    final String gameId = getGameId(session);
+    session.getAttributes().put(GAME_ID_ATTRIBUTE, gameId);
+
+    if (!gameBroadcaster.subscribe(gameId, session)) {
+      session.close(CloseStatus.POLICY_VIOLATION.withReason("Game not found"));
+    }
+  }
+
+  @Override
+  protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+  }
+
+  @Override
+  public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+    final String gameId = (String) session.getAttributes().get(GAME_ID_ATTRIBUTE);
+
+    if (gameId != null) {
+      gameBroadcaster.unsubscribe(gameId, session);
+    }
+  }
+
+  /**
+   * Gets the game id from a session URI of the form /game/{gameId}/watch.
+   */
+  private String getGameId(WebSocketSession session) {
+    final String[] segments = session.getUri().getPath().split("/");
+    return segments[segments.length - 2];
+  }
+}
@@ -0,0 +1,46 @@
+package com.lannen.kalah.startup;
+
+import com.lannen.kalah.domain.GameBoard;
+import com.lannen.kalah.domain.GameMove;
+
+import java.io.IOException;
+
+/**
+ * Plays games to the end by always playing the next player's first pit with stones in it, the same move that is made
+ * for a player who runs out of time with the AUTO_PLAY timeout action. Used by the warm-up, the training run and the
+ * startup benchmark, whether they play in memory or over HTTP.
+ */
+public final class FirstPitPlayer {
+
+  /**
+   * Plays a move in a game, e.g. by calling GameController.playGame, or POST /game/{gameId}/play.
+   */
+  @FunctionalInterface
+  public interface PlayGame {
+    /**
+     * @param gameId the id of the game
+     * @param gameMove the move to play
+     * @return the updated game board
+     */
+    GameBoard play(String gameId, GameMove gameMove) throws IOException;
+  }
+
+  private FirstPitPlayer() {
+  }
+
+  /**
+   * Plays the given game until it is over.
+   *
+   * @param gameBoard the game board of a game in progress
+   * @param playGame plays each move
+   * @return the game board once the game is over
+   */
+  public static GameBoard playToGameOver(GameBoard gameBoard, final PlayGame playGame) throws IOException {
+    while (gameBoard.getCurrentGameStatus() != GameBoard.GameStatus.GAME_OVER) {
+      gameBoard = playGame.play(gameBoard.getGameId(),
+          new GameMove(gameBoard.getNextPlayerId(), gameBoard.getFirstNonEmptyPit()));
+    }
+
+    return gameBoard;
+  }
+}
@@ -0,0 +1,267 @@
+package com.lannen.kalah.startup;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lannen.kalah.domain.GameBoard;
+import com.lannen.kalah.domain.GameMove;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures how quickly a node becomes useful after it is started.
+ *
+ * Starts the application jar in a new JVM with the given JVM options, then measures:
+ *
+ * time to first request: from launching the JVM until POST /game first succeeds.
+ *
+ * time to steady state: from launching the JVM until the number of moves played per second by a fixed number of
+ * clients, each playing games back to back, stops climbing (STABLE_WINDOWS consecutive one second windows within
+ * STABLE_TOLERANCE of each other).
+ *
+ * Usage: java -cp kalah.jar com.lannen.kalah.startup.StartupBenchmark label jar [jvm options...]
+ */
+public class StartupBenchmark {
+  private static final int CLIENTS = 8;
+  private static final int STABLE_WINDOWS = 3;
+  private static final double STABLE_TOLERANCE = 0.05;
+  private static final long WINDOW_MILLIS = 1000;
+  private static final long FIRST_REQUEST_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(120);
+  private static final long STEADY_STATE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(60);
+  private static final long POLL_MILLIS = 5;
+
+  private static final String DEFAULT_SETTINGS = "{}";
+
+  // nextPlayerId is derived from the player ids, so it is not read back
+  private final ObjectMapper objectMapper = new ObjectMapper()
+      .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+  private final String baseUrl;
+  private final LongAdder moves = new LongAdder();
+  private final AtomicBoolean running = new AtomicBoolean(true);
+
+  private StartupBenchmark(final int port) {
+    this.baseUrl = "http://localhost:" + port;
+  }
+
+  public static void main(String[] args) throws Exception {
+    if (args.length < 2) {
+      System.err.println("Usage: StartupBenchmark label jar [jvm options...]");
+      System.exit(1);
+    }
+
+    final int port = findFreePort();
+
+    final List<String> command = new ArrayList<>();
+    command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+    for (int i = 2; i < args.length; i++) {
+      command.add(args[i]);
+    }
+    command.add("-jar");
+    command.add(args[1]);
+    command.add("--server.port=" + port);
+
+    final File output = File.createTempFile("kalah-startup-", ".log");
+    final ProcessBuilder processBuilder = new ProcessBuilder(command).redirectErrorStream(true)
+        .redirectOutput(output);
+
+    final long start = System.nanoTime();
+    final Process process = processBuilder.start();
+
+    try {
+      new StartupBenchmark(port).run(args[0], start, process, output);
+    } finally {
+      process.destroy();
+      process.waitFor(10, TimeUnit.SECONDS);
+    }
+  }
+
+  private void run(final String label, final long start, final Process process, final File output)
+      throws InterruptedException {
+    // Time to first request
+    while (!tryNewGame()) {
+      if (!process.isAlive() || elapsedMillis(start) > FIRST_REQUEST_TIMEOUT_MILLIS) {
+        throw new IllegalStateException("Application did not start, see " + output);
+      }
+
+      Thread.sleep(POLL_MILLIS);
+    }
+
+    final long firstRequestMillis = elapsedMillis(start);
+
+    // Time to steady state
+    final ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+    for (int i = 0; i < CLIENTS; i++) {
+      clients.execute(this::playGames);
+    }
+
+    final double[] windows = new double[STABLE_WINDOWS];
+    int windowCount = 0;
+    long steadyStateMillis = -1;
+    double throughput = 0;
+
+    while (elapsedMillis(start) - firstRequestMillis < STEADY_STATE_TIMEOUT_MILLIS) {
+      final long windowStart = System.nanoTime();
+      final long movesBefore = moves.sum();
+      Thread.sleep(WINDOW_MILLIS);
+      final double movesPerSecond
+          = (moves.sum() - movesBefore) * TimeUnit.SECONDS.toNanos(1) / (double) (System.nanoTime() - windowStart);
+
+      windows[windowCount++ % STABLE_WINDOWS] = movesPerSecond;
+
+      if (windowCount >= STABLE_WINDOWS && isStable(windows)) {
+        // Steady state was reached at the start of the stable windows
+        steadyStateMillis = elapsedMillis(start) - STABLE_WINDOWS * WINDOW_MILLIS;
+        throughput = average(windows);
+        break;
+      }
+    }
+
+    running.set(false);
+    clients.shutdownNow();
+    clients.awaitTermination(10, TimeUnit.SECONDS);
+
+    System.out.printf("%s: time to first request: %d ms%n", label, firstRequestMillis);
+    if (steadyStateMillis < 0) {
+      System.out.printf("%s: time to steady state: not reached in %d s%n", label,
+          TimeUnit.MILLISECONDS.toSeconds(STEADY_STATE_TIMEOUT_MILLIS));
+    } else {
+      System.out.printf("%s: time to steady state: %d ms (%.0f moves/s)%n", label, steadyStateMillis, throughput);
+    }
+  }
+
+  private boolean tryNewGame() {
+    try {
+      return request("POST", "/game", DEFAULT_SETTINGS) != null;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Plays games back to back until stopped, always playing the first pit with stones in it. Once stopped, the game in
+   * play is finished first.
+   */
+  private void playGames() {
+    while (running.get()) {
+      try {
+        final String gameId = readGameBoard(request("POST", "/game", DEFAULT_SETTINGS)).getGameId();
+        final String gameUrl = "/game/" + gameId;
+
+        FirstPitPlayer.playToGameOver(readGameBoard(request("POST", gameUrl, null)), this::playMove);
+      } catch (IOException | RuntimeException e) {
+        if (running.get()) {
+          System.err.println("Game failed: " + e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Plays a move as a client would, checking that it is the player's turn first.
+   */
+  private GameBoard playMove(final String gameId, final GameMove gameMove) throws IOException {
+    final String gameUrl = "/game/" + gameId;
+
+    checkSuccessful(request("GET", gameUrl, null));
+    final String response = request("POST", gameUrl + "/play", objectMapper.writeValueAsString(gameMove));
+    final GameBoard gameBoard = objectMapper.readValue(checkSuccessful(response), GameBoard.class);
+    moves.increment();
+    return gameBoard;
+  }
+
+  /**
+   * Reads the game board from a NewGame response.
+   */
+  private GameBoard readGameBoard(final String newGame) throws IOException {
+    return objectMapper.treeToValue(objectMapper.readTree(checkSuccessful(newGame)).get("gameBoard"),
+        GameBoard.class);
+  }
+
+  /**
+   * @return the response body, or null if the response was not successful
+   */
+  private String request(final String method, final String path, final String body) throws IOException {
+    final HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+    connection.setRequestMethod(method);
+
+    if (body != null) {
+      connection.setDoOutput(true);
+      connection.setRequestProperty("Content-Type", "application/json");
+      try (OutputStream outputStream = connection.getOutputStream()) {
+        outputStream.write(body.getBytes(StandardCharsets.UTF_8));
+      }
+    } else if ("POST".equals(method)) {
+      connection.setDoOutput(true);
+      connection.setFixedLengthStreamingMode(0);
+    }
+
+    if (connection.getResponseCode() / 100 != 2) {
+      return null;
+    }
+
+    try (InputStream inputStream = connection.getInputStream()) {
+      final byte[] buffer = new byte[4096];
+      final StringBuilder response = new StringBuilder();
+
+      int read;
+      while ((read = inputStream.read(buffer)) != -1) {
+        response.append(new String(buffer, 0, read, StandardCharsets.UTF_8));
+      }
+
+      return response.toString();
+    }
+  }
+
+  private static String checkSuccessful(final String response) {
+    if (response == null) {
+      throw new IllegalStateException("Request failed");
+    }
+
+    return response;
+  }
+
+  private static boolean isStable(final double[] windows) {
+    double min = Double.MAX_VALUE;
+    double max = 0;
+
+    for (double window : windows) {
+      min = Math.min(min, window);
+      max = Math.max(max, window);
+    }
+
+    return max > 0 && (max - min) / max <= STABLE_TOLERANCE;
+  }
+
+  private static double average(final double[] windows) {
+    double total = 0;
+
+    for (double window : windows) {
+      total += window;
+    }
+
+    return total / windows.length;
+  }
+
+  private static long elapsedMillis(final long start) {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+  }
+
+  private static int findFreePort() throws IOException {
+    try (ServerSocket serverSocket = new ServerSocket(0)) {
+      return serverSocket.getLocalPort();
+    }
+  }
+}
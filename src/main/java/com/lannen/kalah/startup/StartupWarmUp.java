@@ -0,0 +1,81 @@
+package com.lannen.kalah.startup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lannen.kalah.GameController;
+import com.lannen.kalah.StandaloneGames;
+import com.lannen.kalah.domain.GameBoard;
+import com.lannen.kalah.domain.GameMove;
+import com.lannen.kalah.events.GameEventLog;
+import com.lannen.kalah.spectator.GameBroadcaster;
+import com.lannen.kalah.timer.HashedTimerWheel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optionally plays a number of games at startup, so that the move and serialization paths have been JIT compiled
+ * before the node takes any traffic. The games are played on throwaway StandaloneGames, so they are not stored,
+ * broadcast or recorded in the game event log by the application.
+ *
+ * The warm-up runs once all the beans have been created, which is before the embedded server starts listening, so a
+ * load balancer will not send the node requests until it has finished. It is off by default, and turned on by setting
+ * kalah.warmup.games to the number of games to play.
+ */
+@Component
+public class StartupWarmUp implements SmartInitializingSingleton {
+  private static final Logger LOG = LoggerFactory.getLogger(StartupWarmUp.class);
+
+  private final int games;
+  private final ObjectMapper objectMapper;
+
+  @Autowired
+  public StartupWarmUp(@Value("${kalah.warmup.games:0}") int games, ObjectMapper objectMapper) {
+    this.games = games;
+    this.objectMapper = objectMapper;
+  }
+
+  @Override
+  public void afterSingletonsInstantiated() {
+    if (games <= 0) {
+      return;
+    }
+
+    final long start = System.nanoTime();
+
+    try (StandaloneGames standaloneGames = new StandaloneGames(new GameBroadcaster(objectMapper),
+        new HashedTimerWheel(), GameEventLog.disabled())) {
+      for (int i = 0; i < games; i++) {
+        playGame(standaloneGames.getGameController());
+      }
+    } catch (IOException e) {
+      LOG.warn("Warm-up stopped early", e);
+    }
+
+    LOG.info("Warmed up with {} games in {} ms", games, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+  }
+
+  /**
+   * Plays a game to the end, always playing the first pit with stones in it, and serializes the game board after each
+   * move as it would be in the response.
+   */
+  private void playGame(final GameController gameController) throws IOException {
+    final GameBoard gameBoard = gameController.newGame(null).getBody().getGameBoard();
+    objectMapper.writeValueAsBytes(gameController.joinGame(gameBoard.getGameId()).getBody());
+
+    FirstPitPlayer.playToGameOver(gameBoard, (gameId, gameMove) -> {
+      // Round trip the move through JSON as it would be in the request
+      final byte[] request = objectMapper.writeValueAsBytes(gameMove);
+      final GameBoard played = gameController.playGame(gameId, objectMapper.readValue(request, GameMove.class))
+          .getBody();
+      objectMapper.writeValueAsBytes(played);
+      return played;
+    });
+  }
+}
@@ -0,0 +1,109 @@
+package com.lannen.kalah.startup;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lannen.kalah.domain.GameBoard;
+import com.lannen.kalah.domain.GameSettings;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.WebSocketClient;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The training run for the fast-start build profile. When the application is started with the "training" profile,
+ * this plays a number of games against the application over HTTP, exercising every route, with a spectator watching
+ * each game over a WebSocket, and then shuts the application down.
+ *
+ * The admin routes must be enabled (kalah.admin.enabled=true), and the purge minimum set to 0
+ * (kalah.admin.minPurgeInactiveSeconds=0) so that the games just played can be purged.
+ *
+ * Run with -XX:ArchiveClassesAtExit, this leaves an AppCDS archive of every class needed to start up and serve games,
+ * which later runs load with -XX:SharedArchiveFile instead of loading and verifying the classes from the jars.
+ */
+@Component
+@Profile("training")
+public class TrainingRun implements ApplicationRunner {
+  private static final Logger LOG = LoggerFactory.getLogger(TrainingRun.class);
+  private static final long CONNECT_TIMEOUT_SECONDS = 10;
+
+  private final ConfigurableApplicationContext context;
+  private final Environment environment;
+  private final ObjectMapper objectMapper;
+  private final int games;
+
+  @Autowired
+  public TrainingRun(ConfigurableApplicationContext context, Environment environment, ObjectMapper objectMapper,
+      @Value("${kalah.training.games:100}") int games) {
+    this.context = context;
+    this.environment = environment;
+    this.objectMapper = objectMapper;
+    this.games = games;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) throws Exception {
+    final String port = environment.getProperty("local.server.port");
+    final String baseUrl = "http://localhost:" + port;
+    final RestTemplate restTemplate = new RestTemplate();
+    final WebSocketClient webSocketClient = new StandardWebSocketClient();
+
+    LOG.info("Training run: playing {} games against {}", games, baseUrl);
+
+    for (int i = 0; i < games; i++) {
+      playGame(restTemplate, webSocketClient, baseUrl, "ws://localhost:" + port);
+    }
+
+    restTemplate.getForObject(baseUrl + "/admin/games/stats", JsonNode.class);
+    restTemplate.getForObject(baseUrl + "/admin/events/stats", JsonNode.class);
+    restTemplate.getForObject(baseUrl + "/admin/games?status=GAME_OVER", JsonNode.class);
+    restTemplate.delete(baseUrl + "/admin/games?inactiveSeconds=0");
+
+    LOG.info("Training run: complete, shutting down");
+
+    System.exit(SpringApplication.exit(context));
+  }
+
+  /**
+   * Plays a game to the end, always playing the first pit with stones in it, with a spectator watching it. The updates
+   * sent to the spectator are ignored.
+   */
+  private void playGame(final RestTemplate restTemplate, final WebSocketClient webSocketClient, final String baseUrl,
+      final String webSocketUrl) throws Exception {
+    final String gameId = restTemplate.postForObject(baseUrl + "/game", new GameSettings(), JsonNode.class)
+        .get("gameBoard").get("gameId").asText();
+    final String gameUrl = baseUrl + "/game/" + gameId;
+
+    final WebSocketSession spectator = webSocketClient
+        .doHandshake(new TextWebSocketHandler(), webSocketUrl + "/game/" + gameId + "/watch")
+        .get(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+    try {
+      final JsonNode newGame = restTemplate.postForObject(gameUrl, null, JsonNode.class);
+      restTemplate.getForObject(gameUrl + "/spectators", JsonNode.class);
+
+      FirstPitPlayer.playToGameOver(objectMapper.treeToValue(newGame.get("gameBoard"), GameBoard.class),
+          (ignored, gameMove) -> {
+            restTemplate.getForObject(gameUrl, JsonNode.class);
+            return restTemplate.postForObject(gameUrl + "/play", gameMove, GameBoard.class);
+          });
+    } finally {
+      spectator.close(CloseStatus.NORMAL);
+    }
+  }
+}
@@ -0,0 +1,299 @@
+package com.lannen.kalah.timer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.PreDestroy;
+
+/**
+ * A hashed timer wheel, used to run the game timeouts without a scheduled task per game.
+ *
+ * The wheel is a ring of buckets, each covering one tick. A timeout is placed in the bucket its deadline falls in,
+ * along with the number of full turns of the wheel still to go before it is due. Scheduling and cancelling are O(1):
+ * they just queue the timeout, and a single worker thread moves queued timeouts into (or out of) their buckets once per
+ * tick before expiring the due timeouts in the current bucket. Timeouts are run on the worker thread, so they must be
+ * quick, and fire up to one tick late.
+ */
+@Component
+public class HashedTimerWheel {
+  private static final Logger LOG = LoggerFactory.getLogger(HashedTimerWheel.class);
+
+  public static final long DEFAULT_TICK_MILLIS = 100;
+  public static final int DEFAULT_WHEEL_SIZE = 512;
+
+  private static final int MAX_TIMEOUTS_TRANSFERRED_PER_TICK = 100_000;
+
+  private final long tickNanos;
+  private final Bucket[] wheel;
+  private final int mask;
+
+  private final Queue<Timeout> scheduledTimeouts = new ConcurrentLinkedQueue<>();
+  private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+  private final AtomicLong pendingTimeouts = new AtomicLong();
+
+  private final long startTime;
+  private final Thread worker;
+  private volatile boolean running = true;
+
+  public HashedTimerWheel() {
+    this(DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_WHEEL_SIZE);
+  }
+
+  /**
+   * @param tickDuration the duration of each tick
+   * @param unit the unit of the tick duration
+   * @param wheelSize the number of buckets, rounded up to a power of two
+   */
+  public HashedTimerWheel(final long tickDuration, final TimeUnit unit, final int wheelSize) {
+    if (tickDuration <= 0 || wheelSize <= 0) {
+      throw new IllegalArgumentException("tickDuration and wheelSize must be greater than 0");
+    }
+
+    tickNanos = unit.toNanos(tickDuration);
+
+    int size = 1;
+    while (size < wheelSize) {
+      size <<= 1;
+    }
+
+    wheel = new Bucket[size];
+    for (int i = 0; i < size; i++) {
+      wheel[i] = new Bucket();
+    }
+    mask = size - 1;
+
+    startTime = System.nanoTime();
+    worker = new Thread(this::run, "timer-wheel");
+    worker.setDaemon(true);
+    worker.start();
+  }
+
+  /**
+   * Schedules the given task to run once, after the given delay.
+   *
+   * @param task the task to run
+   * @param delay the delay
+   * @param unit the unit of the delay
+   *
+   * @return the timeout, which can be used to cancel the task
+   */
+  public Timeout schedule(final Runnable task, final long delay, final TimeUnit unit) {
+    final long deadline = System.nanoTime() + unit.toNanos(delay) - startTime;
+    final Timeout timeout = new Timeout(task, deadline);
+
+    pendingTimeouts.incrementAndGet();
+    scheduledTimeouts.add(timeout);
+
+    return timeout;
+  }
+
+  /**
+   * @return the number of timeouts that are scheduled and have neither expired nor been cancelled
+   */
+  public long getPendingTimeouts() {
+    return pendingTimeouts.get();
+  }
+
+  /**
+   * Stops the worker thread. Timeouts still pending will never run.
+   */
+  @PreDestroy
+  public void stop() {
+    running = false;
+    worker.interrupt();
+  }
+
+  private void run() {
+    long tick = 0;
+
+    while (running) {
+      if (!waitForTick(tick)) {
+        continue;
+      }
+
+      processCancelledTimeouts();
+      transferScheduledTimeouts(tick);
+      wheel[(int) (tick & mask)].expireTimeouts();
+      tick++;
+    }
+  }
+
+  /**
+   * Waits until the end of the given tick.
+   *
+   * @return true once the tick has ended, or false if woken early
+   */
+  private boolean waitForTick(final long tick) {
+    final long deadline = tickNanos * (tick + 1);
+    final long sleepNanos = deadline - (System.nanoTime() - startTime);
+
+    if (sleepNanos > 0) {
+      LockSupport.parkNanos(this, sleepNanos);
+
+      return System.nanoTime() - startTime >= deadline;
+    }
+
+    return true;
+  }
+
+  private void transferScheduledTimeouts(final long tick) {
+    for (int i = 0; i < MAX_TIMEOUTS_TRANSFERRED_PER_TICK; i++) {
+      final Timeout timeout = scheduledTimeouts.poll();
+
+      if (timeout == null) {
+        break;
+      }
+
+      if (timeout.state.get() == Timeout.CANCELLED) {
+        continue;
+      }
+
+      final long dueTick = timeout.deadline / tickNanos;
+      timeout.remainingRounds = (dueTick - tick) / wheel.length;
+
+      // If the deadline has already passed, put it in the current bucket to expire straight away
+      final Bucket bucket = wheel[(int) (Math.max(dueTick, tick) & mask)];
+      bucket.add(timeout);
+    }
+  }
+
+  private void processCancelledTimeouts() {
+    Timeout timeout;
+
+    while ((timeout = cancelledTimeouts.poll()) != null) {
+      if (timeout.bucket != null) {
+        timeout.bucket.remove(timeout);
+      }
+    }
+  }
+
+  /**
+   * A task scheduled on the wheel.
+   */
+  public final class Timeout {
+    private static final int INIT = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    private final Runnable task;
+    private final long deadline;
+    private final AtomicInteger state = new AtomicInteger(INIT);
+
+    // Only accessed by the worker thread
+    private long remainingRounds;
+    private Bucket bucket;
+    private Timeout next;
+    private Timeout prev;
+
+    private Timeout(final Runnable task, final long deadline) {
+      this.task = task;
+      this.deadline = deadline;
+    }
+
+    /**
+     * Cancels the timeout, if it has not already run.
+     *
+     * @return true if cancelled, false if the timeout had already run or been cancelled
+     */
+    public boolean cancel() {
+      if (!state.compareAndSet(INIT, CANCELLED)) {
+        return false;
+      }
+
+      pendingTimeouts.decrementAndGet();
+      cancelledTimeouts.add(this);
+      return true;
+    }
+
+    public boolean isCancelled() {
+      return state.get() == CANCELLED;
+    }
+
+    public boolean isExpired() {
+      return state.get() == EXPIRED;
+    }
+
+    private void expire() {
+      if (!state.compareAndSet(INIT, EXPIRED)) {
+        return;
+      }
+
+      pendingTimeouts.decrementAndGet();
+
+      try {
+        task.run();
+      } catch (RuntimeException e) {
+        LOG.error("Timeout task failed", e);
+      }
+    }
+  }
+
+  /**
+   * A doubly linked list of timeouts, so a cancelled timeout can be removed without searching for it.
+   */
+  private static final class Bucket {
+    private Timeout head;
+    private Timeout tail;
+
+    void add(final Timeout timeout) {
+      timeout.bucket = this;
+
+      if (head == null) {
+        head = tail = timeout;
+      } else {
+        tail.next = timeout;
+        timeout.prev = tail;
+        tail = timeout;
+      }
+    }
+
+    void expireTimeouts() {
+      Timeout timeout = head;
+
+      while (timeout != null) {
+        final Timeout next = timeout.next;
+
+        if (timeout.remainingRounds <= 0) {
+          remove(timeout);
+          timeout.expire();
+        } else if (timeout.isCancelled()) {
+          remove(timeout);
+        } else {
+          timeout.remainingRounds--;
+        }
+
+        timeout = next;
+      }
+    }
+
+    void remove(final Timeout timeout) {
+      if (timeout.bucket != this) {
+        return;
+      }
+
+      if (timeout.prev != null) {
+        timeout.prev.next = timeout.next;
+      } else {
+        head = timeout.next;
+      }
+
+      if (timeout.next != null) {
+        timeout.next.prev = timeout.prev;
+      } else {
+        tail = timeout.prev;
+      }
+
+      timeout.prev = null;
+      timeout.next = null;
+      timeout.bucket = null;
+    }
+  }
+}
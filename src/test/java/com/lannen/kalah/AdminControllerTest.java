@@ -0,0 +1,179 @@
+package com.lannen.kalah;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lannen.kalah.domain.EventLogStats;
+import com.lannen.kalah.domain.GameBoard;
+import com.lannen.kalah.domain.GameMove;
+import com.lannen.kalah.domain.GameStats;
+import com.lannen.kalah.events.GameEventLog;
+import com.lannen.kalah.startup.FirstPitPlayer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.EnumMap;
+
+class AdminControllerTest {
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private StandaloneGames standaloneGames;
+  private GameStore gameStore;
+  private GameController gameController;
+  private AdminController adminController;
+  private GameEventLog gameEventLog;
+
+  @BeforeEach
+  void setUp() {
+    standaloneGames = TestGames.create();
+    gameEventLog = mock(GameEventLog.class);
+    gameStore = standaloneGames.getGameStore();
+    gameController = standaloneGames.getGameController();
+    adminController = new AdminController(gameStore, standaloneGames.getGameLifecycle(), gameEventLog, objectMapper,
+        1);
+  }
+
+  @AfterEach
+  void tearDown() {
+    standaloneGames.close();
+  }
+
+  @Test
+  void getGameStats() throws IOException {
+    // 2 not started, 3 in progress with one move each, and 2 over
+    for (int i = 0; i < 2; i++) {
+      gameController.newGame(null);
+    }
+
+    for (int i = 0; i < 3; i++) {
+      final GameBoard gameBoard = startGame();
+      gameController.playGame(gameBoard.getGameId(), new GameMove(gameBoard.getNextPlayerId(), 0));
+    }
+
+    for (int i = 0; i < 2; i++) {
+      playToGameOver(startGame());
+    }
+
+    final ResponseEntity<GameStats> response = adminController.getGameStats();
+    final GameStats gameStats = response.getBody();
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(Integer.valueOf(2), gameStats.getGamesByStatus().get(GameBoard.GameStatus.NOT_STARTED));
+    assertEquals(Integer.valueOf(3), gameStats.getGamesByStatus().get(GameBoard.GameStatus.IN_PROGRESS));
+    assertEquals(Integer.valueOf(2), gameStats.getGamesByStatus().get(GameBoard.GameStatus.GAME_OVER));
+    assertEquals(1.0, gameStats.getAverageMovesInProgress());
+    assertEquals(2, gameStats.getNorthWins() + gameStats.getSouthWins() + gameStats.getTies());
+  }
+
+  @Test
+  void winShares() throws IOException {
+    final GameStats noWins = new GameStats(new EnumMap<>(GameBoard.GameStatus.class), 0, 0, 0, 3);
+    assertNull(noWins.getNorthWinShare());
+    assertNull(noWins.getSouthWinShare());
+    assertFalse(objectMapper.readTree(objectMapper.writeValueAsBytes(noWins)).has("northWinShare"));
+
+    final GameStats noSouthWins = new GameStats(new EnumMap<>(GameBoard.GameStatus.class), 0, 3, 0, 1);
+    assertEquals(Double.valueOf(1), noSouthWins.getNorthWinShare());
+    assertEquals(Double.valueOf(0), noSouthWins.getSouthWinShare());
+
+    final GameStats gameStats = new GameStats(new EnumMap<>(GameBoard.GameStatus.class), 0, 1, 3, 2);
+    assertEquals(Double.valueOf(0.25), gameStats.getNorthWinShare());
+    assertEquals(Double.valueOf(0.75), gameStats.getSouthWinShare());
+  }
+
+  @Test
+  void listGames() throws IOException {
+    gameController.newGame(null);
+    final GameBoard inProgress = startGame();
+
+    JsonNode games = list(adminController.listGames(GameBoard.GameStatus.IN_PROGRESS, null));
+    assertEquals(1, games.size());
+    assertEquals(inProgress.getGameId(), games.get(0).get("gameId").asText());
+    assertFalse(games.get(0).has("northPlayerId"));
+
+    games = list(adminController.listGames(null, null));
+    assertEquals(2, games.size());
+
+    // Nothing has been inactive for an hour
+    games = list(adminController.listGames(null, 3600L));
+    assertEquals(0, games.size());
+
+    assertEquals(MediaType.APPLICATION_JSON_UTF8,
+        adminController.listGames(null, null).getHeaders().getContentType());
+    assertEquals(HttpStatus.BAD_REQUEST, adminController.listGames(null, -1L).getStatusCode());
+  }
+
+  @Test
+  void purgeGames() throws InterruptedException {
+    final GameBoard stale = gameController.newGame(null).getBody().getGameBoard();
+    final GameBoard staleInProgress = startGame();
+    final GameBoard movedInProgress = startGame();
+
+    Thread.sleep(2 * GameStore.ACTIVITY_RESOLUTION_MILLIS);
+
+    final GameBoard active = startGame();
+    gameController.playGame(movedInProgress.getGameId(), new GameMove(movedInProgress.getNextPlayerId(), 0));
+
+    // Below the minimum inactive time
+    assertEquals(HttpStatus.BAD_REQUEST, adminController.purgeGames(0, null).getStatusCode());
+    assertEquals(3, gameStore.count(GameBoard.GameStatus.IN_PROGRESS));
+
+    // Games in progress are only purged if asked for explicitly
+    assertEquals(1, adminController.purgeGames(1, null).getBody().getPurgedCount());
+
+    assertEquals(HttpStatus.NOT_FOUND, gameController.joinGame(stale.getGameId()).getStatusCode());
+    assertNotNull(gameStore.get(staleInProgress.getGameId()));
+    assertEquals(0, gameStore.count(GameBoard.GameStatus.NOT_STARTED));
+    assertEquals(3, gameStore.count(GameBoard.GameStatus.IN_PROGRESS));
+
+    assertEquals(1, adminController.purgeGames(1, GameBoard.GameStatus.IN_PROGRESS).getBody().getPurgedCount());
+
+    assertNull(gameStore.get(staleInProgress.getGameId()));
+    assertNotNull(gameStore.get(movedInProgress.getGameId()));
+    assertNotNull(gameStore.get(active.getGameId()));
+    assertEquals(2, gameStore.count(GameBoard.GameStatus.IN_PROGRESS));
+  }
+
+  @Test
+  void getEventLogStats() {
+    when(gameEventLog.getEventsWritten()).thenReturn(10L);
+    when(gameEventLog.getEventsDropped()).thenReturn(2L);
+    when(gameEventLog.getEventsLost()).thenReturn(1L);
+
+    final ResponseEntity<EventLogStats> response = adminController.getEventLogStats();
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(10, response.getBody().getEventsWritten());
+    assertEquals(2, response.getBody().getEventsDropped());
+    assertEquals(1, response.getBody().getEventsLost());
+  }
+
+  private GameBoard startGame() {
+    final GameBoard gameBoard = gameController.newGame(null).getBody().getGameBoard();
+    gameController.joinGame(gameBoard.getGameId());
+    return gameBoard;
+  }
+
+  private void playToGameOver(final GameBoard gameBoard) throws IOException {
+    FirstPitPlayer.playToGameOver(gameBoard, (gameId, gameMove) -> gameController.playGame(gameId, gameMove).getBody());
+  }
+
+  private JsonNode list(final ResponseEntity<StreamingResponseBody> response) throws IOException {
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+
+    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    response.getBody().writeTo(outputStream);
+    return objectMapper.readTree(outputStream.toByteArray());
+  }
+}
@@ -13,28 +13,38 @@ import org.springframework.util.StringUtils;
 
 import com.lannen.kalah.domain.GameBoard;
 import com.lannen.kalah.domain.GameMove;
+import com.lannen.kalah.domain.GameSettings;
 import com.lannen.kalah.domain.NextPlayer;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
 
 class GameControllerTest {
+  private static final long TIMEOUT_WAIT_MILLIS = 5000;
+
   private static GameController gameController;
+  private StandaloneGames standaloneGames;
+  private GameStore gameStore;
 
   @BeforeEach
   void setUp() {
-    gameController = new GameController();
+    standaloneGames = TestGames.create();
+    gameStore = standaloneGames.getGameStore();
+    gameController = standaloneGames.getGameController();
   }
 
   @AfterEach
   void tearDown() {
+    standaloneGames.close();
   }
 
 
   @Test
   void newGame() {
-    final ResponseEntity<NewGame> response = gameController.newGame();
+    final ResponseEntity<NewGame> response = gameController.newGame(null);
     final NewGame newGame = response.getBody();
     final GameBoard gameBoard = newGame.getGameBoard();
     final String playerId = newGame.getPlayerId();
@@ -66,7 +76,7 @@ class GameControllerTest {
 
   @Test
   void joinGame() {
-    GameBoard gameBoard = gameController.newGame().getBody().getGameBoard();
+    GameBoard gameBoard = gameController.newGame(null).getBody().getGameBoard();
     final String gameId = gameBoard.getGameId();
 
     final boolean firstPlayerIsNorth = !StringUtils.isEmpty(gameBoard.getNorthPlayerId());
@@ -88,7 +98,7 @@ class GameControllerTest {
 
   @Test
   void getNextPlayer() {
-    final GameBoard gameBoard = gameController.newGame().getBody().getGameBoard();
+    final GameBoard gameBoard = gameController.newGame(null).getBody().getGameBoard();
     gameController.joinGame(gameBoard.getGameId());
 
     ResponseEntity<NextPlayer> response = gameController.getNextPlayer(gameBoard.getGameId());
@@ -103,7 +113,7 @@ class GameControllerTest {
     final int NO_OF_GAMES_TO_PLAY = 1000;
 
     for (int i=0; i<NO_OF_GAMES_TO_PLAY; i++) {
-      GameBoard gameBoard = gameController.newGame().getBody().getGameBoard();
+      GameBoard gameBoard = gameController.newGame(null).getBody().getGameBoard();
       final String gameId = gameBoard.getGameId();
       gameBoard = gameController.joinGame(gameId).getBody().getGameBoard();
 
@@ -133,16 +143,107 @@ class GameControllerTest {
 
   }
 
-  private int getNonEmptyPitForNextPlayer(GameBoard gameBoard) {
-    int[] pits;
+  @Test
+  void joinTimeoutExpiresGame() throws InterruptedException {
+    final GameSettings gameSettings = new GameSettings(1, 0, GameSettings.TimeoutAction.FORFEIT);
+    final GameBoard gameBoard = gameController.newGame(gameSettings).getBody().getGameBoard();
+
+    waitUntil(gameBoard, () -> gameStore.get(gameBoard.getGameId()) == null);
+
+    assertEquals(HttpStatus.NOT_FOUND, gameController.joinGame(gameBoard.getGameId()).getStatusCode());
+  }
+
+  @Test
+  void moveTimeoutForfeitsGame() throws InterruptedException {
+    final GameSettings gameSettings = new GameSettings(0, 1, GameSettings.TimeoutAction.FORFEIT);
+    final GameBoard gameBoard = gameController.newGame(gameSettings).getBody().getGameBoard();
+    gameController.joinGame(gameBoard.getGameId());
+
+    assertTrue(gameBoard.getMoveDeadline() > 0);
+
+    waitUntil(gameBoard, () -> gameBoard.getCurrentGameStatus() == GameBoard.GameStatus.GAME_OVER);
+
+    assertEquals(GameBoard.GameStatus.GAME_OVER, gameBoard.getCurrentGameStatus());
+    assertEquals(GameBoard.PlayerPosition.SOUTH, gameBoard.getWinner());
+    assertEquals(0, gameBoard.getMoveDeadline());
+
+    final GameMove gameMove = new GameMove(gameBoard.getNorthPlayerId(), 0);
+    assertEquals(HttpStatus.BAD_REQUEST, gameController.playGame(gameBoard.getGameId(), gameMove).getStatusCode());
+  }
+
+  @Test
+  void moveTimeoutAutoPlays() throws InterruptedException {
+    final GameSettings gameSettings = new GameSettings(0, 1, GameSettings.TimeoutAction.AUTO_PLAY);
+    final GameBoard gameBoard = gameController.newGame(gameSettings).getBody().getGameBoard();
+    gameController.joinGame(gameBoard.getGameId());
+
+    waitUntil(gameBoard, () -> gameBoard.getMoveCount() == 1);
+
+    // North's first pit was played for them
+    assertEquals(GameBoard.GameStatus.IN_PROGRESS, gameBoard.getCurrentGameStatus());
+    assertEquals(1, gameBoard.getMoveCount());
+    assertEquals(0, gameBoard.getNorthPits()[0]);
+    assertEquals(1, gameBoard.getNorthPits()[GameBoard.KALAH_INDEX]);
+    assertEquals(GameBoard.PlayerPosition.SOUTH, gameBoard.getNextPlayer());
+  }
 
-    final String nextPlayerId = gameBoard.getNextPlayerId();
-    if (nextPlayerId.equals(gameBoard.getNorthPlayerId())) {
-      pits = gameBoard.getNorthPits();
+  @Test
+  void moveAfterPurgeIsRejected() throws InterruptedException {
+    final GameSettings gameSettings = new GameSettings(0, 60, GameSettings.TimeoutAction.AUTO_PLAY);
+    final GameBoard gameBoard = gameController.newGame(gameSettings).getBody().getGameBoard();
+    gameController.joinGame(gameBoard.getGameId());
+    final GameMove gameMove = new GameMove(gameBoard.getNextPlayerId(), 0);
+
+    final AtomicReference<ResponseEntity<GameBoard>> response = new AtomicReference<>();
+    final Thread player = new Thread(() -> response.set(gameController.playGame(gameBoard.getGameId(), gameMove)));
+
+    // Purge the game after the move has looked it up, but before the move has the game board's lock
+    synchronized (gameBoard) {
+      player.start();
+
+      final long deadline = System.currentTimeMillis() + TIMEOUT_WAIT_MILLIS;
+      while (player.getState() != Thread.State.BLOCKED) {
+        assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for the move");
+        Thread.sleep(1);
+      }
+
+      assertTrue(standaloneGames.getGameLifecycle().purge(gameBoard, Long.MAX_VALUE));
     }
-    else {
-      pits = gameBoard.getSouthPits();
+
+    player.join(TIMEOUT_WAIT_MILLIS);
+
+    assertEquals(HttpStatus.NOT_FOUND, response.get().getStatusCode());
+    assertEquals(0, gameBoard.getMoveCount());
+    // No move clock was started for the purged game
+    assertEquals(0, gameBoard.getMoveDeadline());
+  }
+
+  @Test
+  void newGameWithInvalidSettings() {
+    final GameSettings gameSettings = new GameSettings(-1, 0, GameSettings.TimeoutAction.FORFEIT);
+    assertEquals(HttpStatus.BAD_REQUEST, gameController.newGame(gameSettings).getStatusCode());
+  }
+
+  /**
+   * Waits for a timeout to change the game, checking the condition holding the game board's lock.
+   */
+  private void waitUntil(final GameBoard gameBoard, final BooleanSupplier condition) throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + TIMEOUT_WAIT_MILLIS;
+
+    while (true) {
+      synchronized (gameBoard) {
+        if (condition.getAsBoolean()) {
+          return;
+        }
+      }
+
+      assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for the timeout");
+      Thread.sleep(10);
     }
+  }
+
+  private int getNonEmptyPitForNextPlayer(GameBoard gameBoard) {
+    final int[] pits = gameBoard.getNextPlayerPits();
 
     int pitId = -1;
 
@@ -0,0 +1,24 @@
+package com.lannen.kalah;
+
+import com.lannen.kalah.events.GameEventLog;
+import com.lannen.kalah.spectator.GameBroadcaster;
+import com.lannen.kalah.timer.HashedTimerWheel;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the StandaloneGames the controller tests play against.
+ */
+final class TestGames {
+  private TestGames() {
+  }
+
+  /**
+   * @return standalone games with no event log, and a timer wheel with a short tick, so the timeouts fire close to
+   * their deadlines
+   */
+  static StandaloneGames create() {
+    return new StandaloneGames(new GameBroadcaster(), new HashedTimerWheel(10, TimeUnit.MILLISECONDS, 128),
+        GameEventLog.disabled());
+  }
+}
@@ -0,0 +1,182 @@
+package com.lannen.kalah.events;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.lannen.kalah.GameController;
+import com.lannen.kalah.StandaloneGames;
+import com.lannen.kalah.domain.GameBoard;
+import com.lannen.kalah.spectator.GameBroadcaster;
+import com.lannen.kalah.startup.FirstPitPlayer;
+import com.lannen.kalah.timer.HashedTimerWheel;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+class GameEventLogTest {
+  private Path directory;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    directory = Files.createTempDirectory("game-events");
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  @Test
+  void eventsFromManyThreadsAreAllWrittenInOrder() throws Exception {
+    final int threads = 4;
+    final int eventsPerThread = 5000;
+
+    // A small buffer and small files, so that the buffer wraps, recording has to wait, and the files roll over
+    final GameEventLog gameEventLog = new GameEventLog(directory.toString(), 64, 1024 * GameEvent.RECORD_SIZE,
+        GameEventLog.FullBufferPolicy.BLOCK);
+
+    final List<Thread> producers = new ArrayList<>();
+    final Map<String, Integer> expectedPits = new HashMap<>();
+
+    for (int t = 0; t < threads; t++) {
+      final GameBoard gameBoard = new GameBoard();
+      expectedPits.put(gameBoard.getGameId(), 0);
+
+      final Thread producer = new Thread(() -> {
+        for (int i = 0; i < eventsPerThread; i++) {
+          gameBoard.getSouthPits()[0] = i % 100;
+          gameEventLog.record(GameEventType.MOVED, gameBoard, GameBoard.PlayerPosition.SOUTH, i % 6, i % 100);
+        }
+      });
+      producers.add(producer);
+      producer.start();
+    }
+
+    for (Thread producer : producers) {
+      producer.join();
+    }
+
+    gameEventLog.close();
+
+    final List<GameEvent> gameEvents = readAll();
+
+    assertEquals(threads * eventsPerThread, gameEvents.size());
+    assertEquals(threads * eventsPerThread, gameEventLog.getEventsWritten());
+    assertEquals(0, gameEventLog.getEventsLost());
+    assertEquals(0, gameEventLog.getEventsDropped());
+    assertTrue(GameEventLogReader.listFiles(directory).size() > 1);
+
+    // The events from each thread are in the order they were recorded
+    for (GameEvent gameEvent : gameEvents) {
+      final int i = expectedPits.get(gameEvent.getGameId());
+      assertEquals(GameEventType.MOVED, gameEvent.getType());
+      assertEquals(GameBoard.PlayerPosition.SOUTH, gameEvent.getPlayer());
+      assertEquals(Integer.valueOf(i % 6), gameEvent.getPitId());
+      assertEquals(i % 100, gameEvent.getValue());
+      assertEquals(i % 100, gameEvent.getSouthPits()[0]);
+      expectedPits.put(gameEvent.getGameId(), i + 1);
+    }
+  }
+
+  @Test
+  void gameIsRecorded() throws Exception {
+    final GameEventLog gameEventLog = new GameEventLog(directory.toString(), GameEventLog.FullBufferPolicy.DROP);
+    GameBoard gameBoard;
+
+    try (StandaloneGames standaloneGames
+        = new StandaloneGames(new GameBroadcaster(), new HashedTimerWheel(), gameEventLog)) {
+      final GameController gameController = standaloneGames.getGameController();
+
+      gameBoard = gameController.newGame(null).getBody().getGameBoard();
+      gameController.joinGame(gameBoard.getGameId());
+      gameBoard = FirstPitPlayer.playToGameOver(gameBoard,
+          (gameId, gameMove) -> gameController.playGame(gameId, gameMove).getBody());
+    } finally {
+      gameEventLog.close();
+    }
+
+    final int moves = gameBoard.getMoveCount();
+    final List<GameEvent> gameEvents = readAll();
+
+    assertEquals(GameEventType.CREATED, gameEvents.get(0).getType());
+    assertEquals(GameEventType.JOINED, gameEvents.get(1).getType());
+    assertEquals(moves, gameEvents.stream().filter(gameEvent -> gameEvent.getType() == GameEventType.MOVED).count());
+
+    final GameEvent gameOver = gameEvents.get(gameEvents.size() - 1);
+    assertEquals(GameEventType.GAME_OVER, gameOver.getType());
+    assertEquals(gameBoard.getGameId(), gameOver.getGameId());
+    assertEquals(gameBoard.getWinner(), gameOver.getPlayer());
+    assertEquals(moves, gameOver.getMoveCount());
+    assertArrayEquals(gameBoard.getNorthPits(), gameOver.getNorthPits());
+    assertArrayEquals(gameBoard.getSouthPits(), gameOver.getSouthPits());
+  }
+
+  @Test
+  void eventsAreWrittenInCaptureOrder() throws Exception {
+    final GameEventLog gameEventLog = new GameEventLog(directory.toString(), GameEventLog.FullBufferPolicy.DROP);
+    final GameBoard gameBoard = new GameBoard();
+
+    final GameEventLog.CapturedEvent created
+        = gameEventLog.capture(GameEventType.CREATED, gameBoard, GameBoard.PlayerPosition.SOUTH, -1, 0);
+    final GameEventLog.CapturedEvent joined
+        = gameEventLog.capture(GameEventType.JOINED, gameBoard, GameBoard.PlayerPosition.NORTH, -1, 0);
+
+    // Changing the board after capturing does not change the captured event
+    gameBoard.getSouthPits()[0] = 0;
+
+    gameEventLog.record(joined);
+    gameEventLog.record(created);
+    gameEventLog.close();
+
+    final List<GameEvent> gameEvents = readAll();
+
+    assertEquals(2, gameEvents.size());
+    assertEquals(GameEventType.CREATED, gameEvents.get(0).getType());
+    assertEquals(GameEventType.JOINED, gameEvents.get(1).getType());
+    assertEquals(GameBoard.INITIAL_STONE_COUNT, gameEvents.get(0).getSouthPits()[0]);
+  }
+
+  @Test
+  void eventsAreDroppedWhenBufferIsFull() throws Exception {
+    final GameEventLog gameEventLog = new GameEventLog(directory.toString(), 8, GameEventLog.DEFAULT_MAX_FILE_BYTES,
+        GameEventLog.FullBufferPolicy.DROP);
+    final GameBoard gameBoard = new GameBoard();
+
+    // Captured but not yet recorded, so the writer cannot get past them
+    final List<GameEventLog.CapturedEvent> capturedEvents = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      capturedEvents.add(gameEventLog.capture(GameEventType.MOVED, gameBoard, GameBoard.PlayerPosition.SOUTH, i, 0));
+    }
+
+    assertNull(gameEventLog.capture(GameEventType.MOVED, gameBoard, GameBoard.PlayerPosition.SOUTH, 0, 0));
+    assertEquals(1, gameEventLog.getEventsDropped());
+
+    gameEventLog.record(capturedEvents);
+    gameEventLog.close();
+
+    assertEquals(8, readAll().size());
+    assertEquals(8, gameEventLog.getEventsWritten());
+  }
+
+  private List<GameEvent> readAll() throws IOException {
+    final List<GameEvent> gameEvents = new ArrayList<>();
+
+    for (Path file : GameEventLogReader.listFiles(directory)) {
+      GameEventLogReader.read(file, gameEvents::add);
+    }
+
+    return gameEvents;
+  }
+}
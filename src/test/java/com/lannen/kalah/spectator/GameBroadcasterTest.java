@@ -0,0 +1,174 @@
+package com.lannen.kalah.spectator;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lannen.kalah.domain.GameBoard;
+import com.lannen.kalah.domain.SpectatorStats;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class GameBroadcasterTest {
+  private GameBroadcaster gameBroadcaster;
+  private GameBoard gameBoard;
+
+  @BeforeEach
+  void setUp() {
+    gameBroadcaster = new GameBroadcaster();
+    gameBoard = new GameBoard();
+    gameBroadcaster.register(gameBoard);
+  }
+
+  @AfterEach
+  void tearDown() {
+    gameBroadcaster.shutdown();
+  }
+
+  @Test
+  void subscribeToUnknownGame() {
+    assertFalse(gameBroadcaster.subscribe("unknown", session("1", new CopyOnWriteArrayList<>(), null, null)));
+    assertNull(gameBroadcaster.getStats("unknown"));
+  }
+
+  @Test
+  void sameMessageIsSentToEverySubscriber() throws Exception {
+    final List<WebSocketMessage<?>> first = new CopyOnWriteArrayList<>();
+    final List<WebSocketMessage<?>> second = new CopyOnWriteArrayList<>();
+
+    assertTrue(gameBroadcaster.subscribe(gameBoard.getGameId(), session("1", first, null, null)));
+    assertTrue(gameBroadcaster.subscribe(gameBoard.getGameId(), session("2", second, null, null)));
+    waitForMessages(first, 1);
+    waitForMessages(second, 1);
+
+    gameBoard.setCurrentGameStatus(GameBoard.GameStatus.IN_PROGRESS);
+    gameBroadcaster.publish(gameBoard);
+    waitForMessages(first, 2);
+    waitForMessages(second, 2);
+
+    assertSame(first.get(1), second.get(1));
+
+    final String payload = ((TextMessage) first.get(1)).getPayload();
+    assertTrue(payload.contains("IN_PROGRESS"));
+    assertFalse(payload.contains("PlayerId"));
+
+    final SpectatorStats spectatorStats = gameBroadcaster.getStats(gameBoard.getGameId());
+    assertEquals(2, spectatorStats.getSubscriberCount());
+    assertEquals(1, spectatorStats.getUpdatesPublished());
+  }
+
+  @Test
+  void slowSubscriberOnlyGetsLatestUpdate() throws Exception {
+    final List<WebSocketMessage<?>> messages = new CopyOnWriteArrayList<>();
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch sending = new CountDownLatch(1);
+
+    gameBroadcaster.subscribe(gameBoard.getGameId(), session("1", messages, sending, release));
+    assertTrue(sending.await(5, TimeUnit.SECONDS));
+
+    // The snapshot is blocked in sendMessage, so all but the last of these should be dropped
+    for (int i = 0; i < 10; i++) {
+      gameBoard.getSouthPits()[GameBoard.KALAH_INDEX] = i;
+      gameBroadcaster.publish(gameBoard);
+    }
+
+    release.countDown();
+    waitForMessages(messages, 2);
+    Thread.sleep(100);
+
+    assertEquals(2, messages.size());
+    assertTrue(((TextMessage) messages.get(1)).getPayload().contains("\"southPits\":[6,6,6,6,6,6,9]"));
+    assertEquals(9, gameBroadcaster.getStats(gameBoard.getGameId()).getUpdatesDropped());
+  }
+
+  @Test
+  void stalledSubscriberDoesNotHoldUpOthers() throws Exception {
+    // A single sender thread, so a stalled send would otherwise stop every other subscriber being sent anything
+    gameBroadcaster.shutdown();
+    gameBroadcaster = new GameBroadcaster(new ObjectMapper(), 1, 100);
+    gameBroadcaster.register(gameBoard);
+
+    final CountDownLatch sending = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final WebSocketSession stalled = session("stalled", new CopyOnWriteArrayList<>(), sending, release);
+
+    try {
+      gameBroadcaster.subscribe(gameBoard.getGameId(), stalled);
+      assertTrue(sending.await(5, TimeUnit.SECONDS));
+
+      final List<WebSocketMessage<?>> first = new CopyOnWriteArrayList<>();
+      final List<WebSocketMessage<?>> second = new CopyOnWriteArrayList<>();
+      gameBroadcaster.subscribe(gameBoard.getGameId(), session("1", first, null, null));
+      gameBroadcaster.subscribe(gameBoard.getGameId(), session("2", second, null, null));
+      waitForMessages(first, 1);
+      waitForMessages(second, 1);
+
+      gameBroadcaster.publish(gameBoard);
+      waitForMessages(first, 2);
+      waitForMessages(second, 2);
+
+      assertEquals(2, gameBroadcaster.getStats(gameBoard.getGameId()).getSubscriberCount());
+    } finally {
+      release.countDown();
+    }
+
+    verify(stalled, timeout(5000)).close(CloseStatus.SESSION_NOT_RELIABLE);
+  }
+
+  @Test
+  void subscribersAreClosedWhenGameIsRemoved() throws Exception {
+    final WebSocketSession session = session("1", new CopyOnWriteArrayList<>(), null, null);
+    gameBroadcaster.subscribe(gameBoard.getGameId(), session);
+
+    gameBroadcaster.remove(gameBoard.getGameId());
+
+    verify(session).close(CloseStatus.GOING_AWAY);
+    assertFalse(
+        gameBroadcaster.subscribe(gameBoard.getGameId(), session("2", new CopyOnWriteArrayList<>(), null, null)));
+  }
+
+  private WebSocketSession session(final String id, final List<WebSocketMessage<?>> messages,
+      final CountDownLatch sending, final CountDownLatch release) {
+    final WebSocketSession session = mock(WebSocketSession.class);
+    when(session.getId()).thenReturn(id);
+
+    try {
+      doAnswer(invocation -> {
+        if (sending != null) {
+          sending.countDown();
+        }
+        if (release != null) {
+          release.await(10, TimeUnit.SECONDS);
+        }
+        messages.add((WebSocketMessage<?>) invocation.getArguments()[0]);
+        return null;
+      }).when(session).sendMessage(any(WebSocketMessage.class));
+    } catch (Exception e) {
+      fail(e.getMessage());
+    }
+
+    return session;
+  }
+
+  private void waitForMessages(final List<WebSocketMessage<?>> messages, final int count) throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + 5000;
+
+    while (messages.size() < count && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+
+    assertEquals(count, messages.size());
+  }
+}
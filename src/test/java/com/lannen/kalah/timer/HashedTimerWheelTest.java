@@ -0,0 +1,74 @@
+package com.lannen.kalah.timer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class HashedTimerWheelTest {
+  private HashedTimerWheel timerWheel;
+
+  @BeforeEach
+  void setUp() {
+    // A small wheel, so that timeouts go round it more than once
+    timerWheel = new HashedTimerWheel(10, TimeUnit.MILLISECONDS, 8);
+  }
+
+  @AfterEach
+  void tearDown() {
+    timerWheel.stop();
+  }
+
+  @Test
+  void timeoutRunsAfterDelay() throws InterruptedException {
+    final CountDownLatch latch = new CountDownLatch(1);
+    final long start = System.nanoTime();
+
+    final HashedTimerWheel.Timeout timeout = timerWheel.schedule(latch::countDown, 200, TimeUnit.MILLISECONDS);
+
+    assertTrue(latch.await(2, TimeUnit.SECONDS));
+    assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 200);
+    assertTrue(timeout.isExpired());
+    assertEquals(0, timerWheel.getPendingTimeouts());
+  }
+
+  @Test
+  void cancelledTimeoutDoesNotRun() throws InterruptedException {
+    final AtomicInteger runs = new AtomicInteger();
+
+    final HashedTimerWheel.Timeout timeout = timerWheel.schedule(runs::incrementAndGet, 100, TimeUnit.MILLISECONDS);
+
+    assertTrue(timeout.cancel());
+    assertFalse(timeout.cancel());
+
+    Thread.sleep(300);
+
+    assertEquals(0, runs.get());
+    assertTrue(timeout.isCancelled());
+    assertEquals(0, timerWheel.getPendingTimeouts());
+  }
+
+  @Test
+  void manyTimeouts() throws InterruptedException {
+    final int count = 100_000;
+    final CountDownLatch latch = new CountDownLatch(count / 2);
+
+    for (int i = 0; i < count; i++) {
+      final HashedTimerWheel.Timeout timeout = timerWheel.schedule(latch::countDown, i % 500, TimeUnit.MILLISECONDS);
+
+      if (i % 2 == 1) {
+        timeout.cancel();
+      }
+    }
+
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    Thread.sleep(100);
+    assertEquals(0, timerWheel.getPendingTimeouts());
+    assertEquals(0, latch.getCount());
+  }
+}